@@ -5,4 +5,8 @@ module org.example {
 
 //    opens org.example to javafx.fxml;
     exports org.nbpeak.game.towerHanoi;
+    exports org.nbpeak.game.towerHanoi.batch;
+    exports org.nbpeak.game.towerHanoi.broadcast;
+    exports org.nbpeak.game.towerHanoi.solver;
+    exports org.nbpeak.game.towerHanoi.state;
 }
\ No newline at end of file
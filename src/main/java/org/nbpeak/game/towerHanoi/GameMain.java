@@ -4,6 +4,7 @@ import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.IntegerPropertyBase;
 import javafx.beans.property.SimpleStringProperty;
@@ -24,11 +25,20 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import org.nbpeak.game.towerHanoi.broadcast.BroadcastServer;
+import org.nbpeak.game.towerHanoi.broadcast.Frames;
 import org.nbpeak.game.towerHanoi.control.Block;
+import org.nbpeak.game.towerHanoi.control.BlockFactory;
+import org.nbpeak.game.towerHanoi.control.KeyboardMoveQueue;
+import org.nbpeak.game.towerHanoi.control.MoveAnimator;
 import org.nbpeak.game.towerHanoi.control.Stack;
+import org.nbpeak.game.towerHanoi.control.StateGraphView;
 import org.nbpeak.game.towerHanoi.event.StackInEvent;
 import org.nbpeak.game.towerHanoi.event.StackOutEvent;
+import org.nbpeak.game.towerHanoi.solver.Board;
+import org.nbpeak.game.towerHanoi.state.GameStatePublisher;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -39,10 +49,20 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class GameMain extends Application {
 
+    /**
+     * 给观众同步计时的间隔
+     */
+    private static final long TIME_CHECKPOINT_MILLIS = 250;
+
     private final StringProperty stepProperty = new SimpleStringProperty("第 0 步");
     private final AtomicInteger stepCounter = new AtomicInteger();
     private final StringProperty timeProperty = new SimpleStringProperty("00:00.000");
     private final List<Stack> stacks = new ArrayList<>();
+    private final BlockFactory blockFactory = new BlockFactory();
+    private final MoveAnimator moveAnimator = new MoveAnimator();
+    private final KeyboardMoveQueue keyboardMoveQueue = new KeyboardMoveQueue(stacks, moveAnimator);
+    private final GameStatePublisher statePublisher = new GameStatePublisher();
+    private final StateGraphView stateGraphView = new StateGraphView();
 
     private Stack firstStack;
 
@@ -52,6 +72,25 @@ public class GameMain extends Application {
 
     private Timeline timer;
 
+    /**
+     * 计时器当前的毫秒数
+     */
+    private long elapsedMillis;
+
+    /**
+     * 观众广播，启动参数 --broadcast-port=端口 时开启
+     */
+    private BroadcastServer broadcaster;
+
+    private Board stateBoard;
+
+    /**
+     * 还没有发给观众、没有更新到步数和状态图上的移动数，每个脉冲合并发布一次
+     */
+    private int unpublishedMoves;
+    private int lastFrom;
+    private int lastTo;
+
     private IntegerProperty gameStatus = new IntegerPropertyBase() {
         @Override
         protected void invalidated() {
@@ -61,23 +100,28 @@ public class GameMain extends Application {
                     button.setText("重来");
                     button.setOnAction(btnResetHandler);
                     slider.setDisable(true);
+                    keyboardMoveQueue.start();
                     timer = createTimer();
                     timer.play();
                     break;
                 case 2:// 重来
                     stepCounter.set(0);
-                    stepProperty.setValue("第 0 步");
+                    elapsedMillis = 0;
+                    statePublisher.setElapsedMillis(0);
                     button.setText("开始");
                     timeProperty.setValue("00:00.000");
                     slider.setDisable(false);
                     button.setOnAction(btnStartHandler);
+                    moveAnimator.stop();
                     stacks.forEach(Stack::clear);
                     stacks.get(0).initBlocks((int) slider.getValue());
                 case 3:// 游戏结束
                     stacks.forEach(stack -> stack.setMouseTransparent(true));
+                    keyboardMoveQueue.stop();
                     timer.stop();
                     break;
             }
+            publishState();
         }
 
         @Override
@@ -99,6 +143,11 @@ public class GameMain extends Application {
         AtomicLong counter = new AtomicLong();
         Timeline timeline = new Timeline(new KeyFrame(Duration.millis(1), event -> {
             long val = counter.getAndIncrement();
+            elapsedMillis = val;
+            statePublisher.setElapsedMillis(val);
+            if (broadcaster != null && val % TIME_CHECKPOINT_MILLIS == 0) {// 定时给观众同步时间
+                broadcaster.publish(Frames.time(val));
+            }
             String formattedTime = Instant.ofEpochMilli(val).atZone(ZoneId.systemDefault()).toLocalTime().format(DateTimeFormatter.ofPattern("mm:ss.SSS"));
             timeProperty.setValue(formattedTime);
         }));
@@ -115,7 +164,7 @@ public class GameMain extends Application {
     };
 
     /**
-     * 方块出栈时，移入到鼠标所在的堆栈面板
+     * 方块出栈时，从释放的位置移入到鼠标所在的堆栈面板
      */
     private final EventHandler<StackOutEvent> stackOutHandler = event -> {
         Point2D point = event.getPoint();
@@ -124,7 +173,9 @@ public class GameMain extends Application {
             return;
         }
 
-        stack.putBlock(event.getBlock());
+        Block block = event.getBlock();
+        Point2D blockPoint = event.getBlockPoint();
+        moveAnimator.move(block, stack, blockPoint == null ? block.localToScene(0, 0) : blockPoint);
     };
     private EventHandler<StackInEvent> stackInHandler = event -> {
         if (event.getStackSize() == ((int) slider.getValue())) {// 所有的方块都进入最后一个堆栈面板时，游戏结束
@@ -132,6 +183,65 @@ public class GameMain extends Application {
         }
     };
 
+    /**
+     * 发布当前局面，供后台线程读取，并发送给观众
+     */
+    private void publishState() {
+        unpublishedMoves = 0;// 快照已经包含了还没发布的移动
+        stepProperty.setValue("第 " + stepCounter.get() + " 步");
+        stateBoard = Stack.toBoard(stacks, stateBoard);
+        statePublisher.publish(stateBoard, stepCounter.get(), gameStatus.get());
+        if (broadcaster != null) {
+            broadcaster.publish(Frames.snapshot(stateBoard, stepCounter.get(), elapsedMillis, gameStatus.get()));
+        }
+        stateGraphView.show(statePublisher.get());
+    }
+
+    /**
+     * 发布一步移动。后台线程读取的局面立即更新，步数、观众广播和状态图留到{@link #flushMoves()}合并处理
+     * @param from 原来的堆栈下标
+     * @param to   放入的堆栈下标
+     */
+    private void publishMove(int from, int to) {
+        if (from < 0) {
+            publishState();
+            return;
+        }
+        statePublisher.publishMove(from, to, stepCounter.get());
+        unpublishedMoves++;
+        lastFrom = from;
+        lastTo = to;
+        Platform.requestNextPulse();
+    }
+
+    /**
+     * 在脉冲布局之前发布这个脉冲内的所有移动：只有一步时给观众发移动帧，多步时发快照
+     */
+    private void flushMoves() {
+        if (unpublishedMoves == 0) {
+            return;
+        }
+        stepProperty.setValue("第 " + stepCounter.get() + " 步");
+        if (broadcaster != null) {
+            if (unpublishedMoves == 1) {
+                broadcaster.publish(Frames.move(lastFrom, lastTo, stepCounter.get()));
+            } else {
+                stateBoard = Stack.toBoard(stacks, stateBoard);
+                broadcaster.publish(Frames.snapshot(stateBoard, stepCounter.get(), elapsedMillis, gameStatus.get()));
+            }
+        }
+        stateGraphView.show(statePublisher.get());
+        unpublishedMoves = 0;
+    }
+
+    /**
+     * 对局状态，后台线程可以随时读取，不需要回到JavaFx线程
+     * @return
+     */
+    public GameStatePublisher getStatePublisher() {
+        return statePublisher;
+    }
+
     /**
      * 根据点坐标找堆栈面板
      * @param point
@@ -169,13 +279,43 @@ public class GameMain extends Application {
 
     @Override
     public void start(Stage stage) {
-        stage.setScene(new Scene(createContent()));
+        Scene scene = new Scene(createContent());
+        moveAnimator.install(scene);
+        keyboardMoveQueue.install(scene);// 游戏开始后可以用数字键走子
+        scene.addPreLayoutPulseListener(this::flushMoves);// 在键盘队列之后，同一个脉冲内用键盘走的子一起发布
+        stage.setScene(scene);
         stage.setMinHeight(600);
 
         stage.getIcons().add(new Image(getClass().getResourceAsStream("/images/icon.png")));
-        stage.setMinWidth(Block.MAX_WIDTH * 3 + 100);
+        stage.setMinWidth(Block.MAX_WIDTH * 3 + StateGraphView.DEFAULT_SIZE + 120);
         stage.setTitle("汉诺塔 - v1.0");
         stage.show();
+
+        String port = getParameters() == null ? null : getParameters().getNamed().get("broadcast-port");
+        if (port != null) {
+            startBroadcast(Integer.parseInt(port));
+        }
+        publishState();
+    }
+
+    /**
+     * 开启观众广播
+     * @param port
+     */
+    private void startBroadcast(int port) {
+        try {
+            broadcaster = new BroadcastServer(port);
+            broadcaster.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (broadcaster != null) {
+            broadcaster.close();
+        }
     }
 
     /**
@@ -201,7 +341,7 @@ public class GameMain extends Application {
         VBox.setVgrow(hBox, Priority.ALWAYS);// 让hbox的高度随父容器VBox调整
         String[] labels = new String[]{"A", "B", "C"};
         for (int i = 0; i < 3; i++) {
-            Stack stackPane = new Stack(labels[i]);// 堆栈面板
+            Stack stackPane = new Stack(labels[i], blockFactory);// 堆栈面板
             stackPane.setMinWidth(Block.MAX_WIDTH);
             stackPane.setOnStackOut(stackOutHandler);// 设置块出栈事件
             HBox.setHgrow(stackPane, Priority.ALWAYS);// 让堆栈面板的宽度随父容器HBox调整
@@ -214,8 +354,9 @@ public class GameMain extends Application {
             int finalI = i;
             stackPane.setOnStackIn(event -> {// 设置方块入栈事件
                 if (gameStatus.get() == 1) {// 游戏开始了，才记步数
-                    stepProperty.setValue("第 " + stepCounter.incrementAndGet() + " 步");
+                    stepCounter.incrementAndGet();
                 }
+                publishMove(stacks.indexOf(event.getFrom()), finalI);
                 if (finalI == 2) {// 方块放入最后一个堆栈面板特殊处理
                     stackInHandler.handle(event);
                 }
@@ -223,6 +364,7 @@ public class GameMain extends Application {
             stacks.add(stackPane);
         }
         hBox.getChildren().addAll(stacks);
+        hBox.getChildren().add(stateGraphView);// 状态图放在堆栈面板右边
         return hBox;
     }
 
@@ -251,6 +393,7 @@ public class GameMain extends Application {
                 return;
             }
             firstStack.initBlocks(val2);// 滑块的值有变化时重新调整第一个堆栈面板中的方块数量
+            publishState();
         }));
         Label stepLabel = new Label();
         stepLabel.textProperty().bind(stepProperty);
@@ -0,0 +1,133 @@
+package org.nbpeak.game.towerHanoi;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import org.nbpeak.game.towerHanoi.broadcast.Frames;
+import org.nbpeak.game.towerHanoi.broadcast.SpectatorClient;
+import org.nbpeak.game.towerHanoi.control.Block;
+import org.nbpeak.game.towerHanoi.control.BlockFactory;
+import org.nbpeak.game.towerHanoi.control.Stack;
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 观众端，连接 GameMain --broadcast-port=端口 开启的广播，只显示不能操作。
+ * 启动参数：--host=127.0.0.1 --port=端口
+ */
+public class SpectatorMain extends Application {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("mm:ss.SSS");
+
+    private final BlockFactory blockFactory = new BlockFactory();
+    private final List<Stack> stacks = new ArrayList<>();
+    private final HBox gameBox = new HBox(20);
+    private final Label stepLabel = new Label("第 0 步");
+    private final Label timeLabel = new Label("00:00.000");
+
+    /**
+     * 已经安排了重绘，还没执行
+     */
+    private final AtomicBoolean renderPending = new AtomicBoolean();
+
+    private SpectatorClient client;
+
+    private Board board;
+
+    @Override
+    public void start(Stage stage) throws IOException {
+        String host = getParameters().getNamed().getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(getParameters().getNamed().getOrDefault("port", "7070"));
+
+        VBox root = new VBox();
+        root.setPadding(new Insets(0, 20, 20, 20));
+        HBox topBox = new HBox(10);
+        topBox.setAlignment(Pos.CENTER_LEFT);
+        topBox.setPrefHeight(50);
+        HBox.setHgrow(stepLabel, Priority.ALWAYS);
+        stepLabel.setMaxWidth(Double.MAX_VALUE);
+        topBox.getChildren().addAll(stepLabel, timeLabel);
+        gameBox.setAlignment(Pos.BOTTOM_CENTER);
+        VBox.setVgrow(gameBox, Priority.ALWAYS);
+        root.getChildren().addAll(topBox, gameBox);
+
+        stage.setScene(new Scene(root));
+        stage.setMinHeight(600);
+        stage.setMinWidth(Block.MAX_WIDTH * 3 + 100);
+        stage.setTitle("汉诺塔 - 观战 " + host + ":" + port);
+        stage.show();
+
+        client = new SpectatorClient(host, port);
+        client.start(this::scheduleRender, () -> Platform.runLater(() -> stage.setTitle("汉诺塔 - 观战已断开")));
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * 一个脉冲内收到多批帧时只重绘一次
+     */
+    private void scheduleRender(Frames.State state) {
+        if (renderPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                renderPending.set(false);
+                render(state);
+            });
+        }
+    }
+
+    private void render(Frames.State state) {
+        int steps;
+        long elapsed;
+        synchronized (state) {
+            Board source = state.getBoard();
+            if (board == null || board.getDisks() != source.getDisks() || board.getPegs() != source.getPegs()) {
+                board = new Board(source.getDisks(), source.getPegs());
+            }
+            board.clear();
+            for (int peg = 0; peg < source.getPegs(); peg++) {
+                for (int i = 0; i < source.height(peg); i++) {
+                    board.place(peg, source.diskAt(peg, i));
+                }
+            }
+            steps = state.getSteps();
+            elapsed = state.getElapsedMillis();
+        }
+
+        while (stacks.size() < board.getPegs()) {
+            Stack stack = new Stack(String.valueOf((char) ('A' + stacks.size())), blockFactory);
+            stack.setMinWidth(Block.MAX_WIDTH);
+            stack.setMouseTransparent(true);
+            HBox.setHgrow(stack, Priority.ALWAYS);
+            stacks.add(stack);
+            gameBox.getChildren().add(stack);
+        }
+        stacks.forEach(Stack::clear);
+        List<Block> blocks = blockFactory.getBlocks(board.getDisks());
+        for (int peg = 0; peg < board.getPegs(); peg++) {
+            for (int i = 0; i < board.height(peg); i++) {// 从下往上放入
+                stacks.get(peg).putBlock(blocks.get(board.diskAt(peg, i) - 1));
+            }
+        }
+        stepLabel.setText("第 " + steps + " 步");
+        timeLabel.setText(TIME_FORMAT.format(Instant.ofEpochMilli(elapsed).atZone(ZoneOffset.UTC)));
+    }
+}
@@ -0,0 +1,275 @@
+package org.nbpeak.game.towerHanoi.batch;
+
+import org.nbpeak.game.towerHanoi.solver.Board;
+import org.nbpeak.game.towerHanoi.solver.HanoiSolver;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 命令行批量求解/模拟入口，不会加载任何JavaFx类，可以在没有显示器的服务器上运行。
+ * <pre>
+ * java -cp TowerHanoi.jar org.nbpeak.game.towerHanoi.batch.BatchMain --mode simulate --disks 3-25 --pegs 3-5 --format json
+ * </pre>
+ */
+public class BatchMain {
+
+    private static final String USAGE = "Usage: BatchMain [--mode solve|simulate] [--disks N|MIN-MAX] [--pegs N|MIN-MAX]"
+            + " [--format csv|json] [--threads N] [--output FILE]";
+
+    /**
+     * 一个区间最少的步数，太小的区间调度开销比求解还大
+     */
+    private static final long MIN_SEGMENT_MOVES = 1L << 20;
+
+    /**
+     * 平均每个线程分到的区间数，区间越多负载越均衡
+     */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private BatchMode mode = BatchMode.SOLVE;
+    private int minDisks = 3;
+    private int maxDisks = 20;
+    private int minPegs = 3;
+    private int maxPegs = 3;
+    private boolean json;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String output;
+
+    public static void main(String[] args) {
+        BatchMain batch = new BatchMain();
+        try {
+            batch.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            batch.run();
+        } catch (IOException | ExecutionException e) {
+            e.printStackTrace();
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                throw new IllegalArgumentException("TowerHanoi batch runner");
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--mode":
+                    mode = BatchMode.valueOf(value.toUpperCase());
+                    break;
+                case "--disks": {
+                    int[] range = parseRange(value);
+                    minDisks = range[0];
+                    maxDisks = range[1];
+                    break;
+                }
+                case "--pegs": {
+                    int[] range = parseRange(value);
+                    minPegs = range[0];
+                    maxPegs = range[1];
+                    break;
+                }
+                case "--format":
+                    if (!"csv".equals(value) && !"json".equals(value)) {
+                        throw new IllegalArgumentException("Unknown format: " + value);
+                    }
+                    json = "json".equals(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--output":
+                    output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (minDisks < 0 || maxDisks > HanoiSolver.MAX_DISKS) {
+            throw new IllegalArgumentException("disks must be between 0 and " + HanoiSolver.MAX_DISKS);
+        }
+        if (minPegs < HanoiSolver.MIN_PEGS || maxPegs > HanoiSolver.MAX_PEGS) {
+            throw new IllegalArgumentException("pegs must be between " + HanoiSolver.MIN_PEGS + " and " + HanoiSolver.MAX_PEGS);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+    }
+
+    /**
+     * 解析 "N" 或 "MIN-MAX" 形式的范围
+     */
+    private static int[] parseRange(String value) {
+        int dash = value.indexOf('-');
+        try {
+            int min = Integer.parseInt(dash < 0 ? value : value.substring(0, dash));
+            int max = dash < 0 ? min : Integer.parseInt(value.substring(dash + 1));
+            if (min > max) {
+                throw new IllegalArgumentException("Invalid range: " + value);
+            }
+            return new int[]{min, max};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid range: " + value);
+        }
+    }
+
+    private void run() throws IOException, InterruptedException, ExecutionException {
+        List<HanoiSolver> tasks = new ArrayList<>();
+        long totalMoves = 0;
+        for (int p = minPegs; p <= maxPegs; p++) {
+            for (int n = minDisks; n <= maxDisks; n++) {
+                HanoiSolver solver = new HanoiSolver(n, p);
+                tasks.add(solver);
+                totalMoves = totalMoves + solver.optimalMoves() < 0 ? Long.MAX_VALUE : totalMoves + solver.optimalMoves();
+            }
+        }
+        // 一个n的步数和所有更小的n加起来差不多，按任务分配的话最大的任务会独占一个核，
+        // 所以每个任务再按步数切成大小相近的区间，每个区间独立求解
+        long segmentMoves = Math.max(MIN_SEGMENT_MOVES, totalMoves / ((long) threads * SEGMENTS_PER_THREAD) + 1);
+        List<long[]> segments = new ArrayList<>();// {任务下标, 第一步, 最后一步（不含）}
+        for (int i = 0; i < tasks.size(); i++) {
+            long optimal = tasks.get(i).optimalMoves();
+            long first = 0;
+            do {
+                long last = optimal - first <= segmentMoves ? optimal : first + segmentMoves;
+                segments.add(new long[]{i, first, last});
+                first = last;
+            } while (first < optimal);
+        }
+        // 大的区间先提交，避免最后只剩一个大区间占着一个核
+        segments.sort(Comparator.comparingLong((long[] segment) -> segment[2] - segment[1]).reversed());
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "hanoi-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<SegmentResult>> futures = new ArrayList<>(segments.size());
+            for (long[] segment : segments) {
+                HanoiSolver solver = tasks.get((int) segment[0]);
+                futures.add(executor.submit(() -> runSegment(solver, segment[1], segment[2])));
+            }
+            SegmentResult[] merged = new SegmentResult[tasks.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                int task = (int) segments.get(i)[0];
+                SegmentResult result = futures.get(i).get();
+                merged[task] = merged[task] == null ? result : merged[task].merge(result);
+            }
+            List<BatchResult> results = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {// 输出按参数顺序排列
+                HanoiSolver solver = tasks.get(i);
+                SegmentResult result = merged[i];
+                results.add(new BatchResult(mode, solver.getDisks(), solver.getPegs(), result.moves, solver.optimalMoves(),
+                        mode == BatchMode.SIMULATE ? result.solved : null, result.elapsedNanos,
+                        result.endNanos - result.startNanos));
+            }
+            write(results, System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 求解第first步到第last步（不含）。模拟模式下先把局面摆到第first步之前，逐步模拟到第last步，
+     * 再和按解的结构直接摆出的第last步局面比较，相同才能和下一个区间接上
+     */
+    private SegmentResult runSegment(HanoiSolver solver, long first, long last) {
+        long start = System.nanoTime();
+        long moves;
+        boolean solved = true;
+        if (mode == BatchMode.SIMULATE) {
+            Board board = new Board(solver.getDisks(), solver.getPegs());
+            solver.solve(first, last, board, board::move);
+            moves = board.getMoveCount();
+            if (last == solver.optimalMoves()) {
+                solved = board.isSolved();
+            } else {
+                Board expected = new Board(solver.getDisks(), solver.getPegs());
+                solver.solve(last, last, expected, null);
+                solved = board.samePosition(expected);
+            }
+        } else {
+            long[] counter = new long[1];
+            solver.solve(first, last, null, (from, to) -> counter[0]++);
+            moves = counter[0];
+        }
+        long end = System.nanoTime();
+        return new SegmentResult(moves, solved, end - start, start, end);
+    }
+
+    /**
+     * 一个区间的结果，同一个任务的区间合并后得到任务的结果
+     */
+    private static class SegmentResult {
+        private final long moves;
+        private final boolean solved;
+        private final long elapsedNanos;
+        private final long startNanos;
+        private final long endNanos;
+
+        SegmentResult(long moves, boolean solved, long elapsedNanos, long startNanos, long endNanos) {
+            this.moves = moves;
+            this.solved = solved;
+            this.elapsedNanos = elapsedNanos;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        /**
+         * 步数和耗时相加，所有区间都校验通过才算解出；另外记下第一个区间开始到最后一个区间结束的时间
+         */
+        SegmentResult merge(SegmentResult other) {
+            return new SegmentResult(moves + other.moves, solved && other.solved, elapsedNanos + other.elapsedNanos,
+                    Math.min(startNanos, other.startNanos), Math.max(endNanos, other.endNanos));
+        }
+    }
+
+    private void write(List<BatchResult> results, long wallNanos) throws IOException {
+        PrintStream out = output == null ? System.out
+                : new PrintStream(Files.newOutputStream(Paths.get(output)), false, StandardCharsets.UTF_8);
+        try {
+            if (json) {
+                out.println("{\"threads\":" + threads + ",\"wallNanos\":" + wallNanos + ",\"results\":[");
+                for (int i = 0; i < results.size(); i++) {
+                    out.print("  " + results.get(i).toJson());
+                    out.println(i == results.size() - 1 ? "" : ",");
+                }
+                out.println("]}");
+            } else {
+                out.println(BatchResult.CSV_HEADER);
+                results.forEach(result -> out.println(result.toCsv()));
+            }
+            out.flush();
+        } finally {
+            if (out != System.out) {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.nbpeak.game.towerHanoi.batch;
+
+/**
+ * 批量任务的运行方式
+ */
+public enum BatchMode {
+    /**
+     * 只生成最优解的每一步
+     */
+    SOLVE,
+    /**
+     * 生成最优解并在局面上逐步执行、校验
+     */
+    SIMULATE
+}
@@ -0,0 +1,94 @@
+package org.nbpeak.game.towerHanoi.batch;
+
+import java.util.Locale;
+
+/**
+ * 一次批量任务的统计结果
+ */
+public class BatchResult {
+
+    public static final String CSV_HEADER = "mode,disks,pegs,moves,optimalMoves,solved,elapsedNanos,wallNanos,movesPerSecond";
+
+    private final BatchMode mode;
+    private final int disks;
+    private final int pegs;
+    private final long moves;
+    private final long optimalMoves;
+    /**
+     * 是否走到了目标局面，只有模拟模式会校验，求解模式为null
+     */
+    private final Boolean solved;
+    /**
+     * 所有区间求解耗时之和，用来算每秒步数
+     */
+    private final long elapsedNanos;
+
+    /**
+     * 第一个区间开始到最后一个区间结束，中间可能夹着其他任务的区间
+     */
+    private final long wallNanos;
+
+    public BatchResult(BatchMode mode, int disks, int pegs, long moves, long optimalMoves, Boolean solved, long elapsedNanos,
+                       long wallNanos) {
+        this.mode = mode;
+        this.disks = disks;
+        this.pegs = pegs;
+        this.moves = moves;
+        this.optimalMoves = optimalMoves;
+        this.solved = solved;
+        this.elapsedNanos = elapsedNanos;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * 每秒移动步数
+     * @return
+     */
+    public double getMovesPerSecond() {
+        return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+    }
+
+    public String toCsv() {
+        return mode.name().toLowerCase() + ',' + disks + ',' + pegs + ',' + moves + ',' + optimalMoves + ','
+                + (solved == null ? "" : solved.toString()) + ',' + elapsedNanos + ',' + wallNanos + ',' + String.format(Locale.ROOT, "%.1f", getMovesPerSecond());
+    }
+
+    public String toJson() {
+        return "{\"mode\":\"" + mode.name().toLowerCase() + "\",\"disks\":" + disks + ",\"pegs\":" + pegs
+                + ",\"moves\":" + moves + ",\"optimalMoves\":" + optimalMoves + ",\"solved\":" + solved
+                + ",\"elapsedNanos\":" + elapsedNanos + ",\"wallNanos\":" + wallNanos
+                + ",\"movesPerSecond\":" + String.format(Locale.ROOT, "%.1f", getMovesPerSecond()) + "}";
+    }
+
+    public BatchMode getMode() {
+        return mode;
+    }
+
+    public int getDisks() {
+        return disks;
+    }
+
+    public int getPegs() {
+        return pegs;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getOptimalMoves() {
+        return optimalMoves;
+    }
+
+    public Boolean getSolved() {
+        return solved;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+}
@@ -0,0 +1,79 @@
+package org.nbpeak.game.towerHanoi.batch;
+
+import org.nbpeak.game.towerHanoi.solver.HanoiSolver;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 命令行导出最优解，不会加载任何JavaFx类。
+ * <pre>
+ * java -cp TowerHanoi.jar org.nbpeak.game.towerHanoi.batch.ExportMain --disks 32 --format binary --output hanoi32.bin
+ * </pre>
+ */
+public class ExportMain {
+
+    private static final String USAGE = "Usage: ExportMain --disks N [--pegs N] [--format binary|text] [--buffer-mb N] --output FILE";
+
+    public static void main(String[] args) {
+        int disks = -1;
+        int pegs = HanoiSolver.MIN_PEGS;
+        SolutionExporter.Format format = SolutionExporter.Format.BINARY;
+        int bufferSize = SolutionExporter.DEFAULT_BUFFER_SIZE;
+        String output = null;
+        HanoiSolver solver;
+        SolutionExporter exporter;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--disks":
+                        disks = Integer.parseInt(value);
+                        break;
+                    case "--pegs":
+                        pegs = Integer.parseInt(value);
+                        break;
+                    case "--format":
+                        format = SolutionExporter.Format.valueOf(value.toUpperCase());
+                        break;
+                    case "--buffer-mb":
+                        bufferSize = Math.multiplyExact(Integer.parseInt(value), 1 << 20);
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (disks < 0 || output == null) {
+                throw new IllegalArgumentException("--disks and --output are required");
+            }
+            if (pegs > SolutionExporter.MAX_PEGS) {
+                throw new IllegalArgumentException("at most " + SolutionExporter.MAX_PEGS + " pegs can be exported: " + pegs);
+            }
+            solver = new HanoiSolver(disks, pegs);// 方块数、柱子数超出范围时抛出IllegalArgumentException
+            exporter = new SolutionExporter(format, bufferSize);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            long bytes = exporter.export(solver, Paths.get(output));
+            long nanos = System.nanoTime() - start;
+            System.err.printf("%d moves, %d bytes in %.3f s (%.1f MB/s)%n", solver.optimalMoves(), bytes,
+                    nanos / 1e9, nanos == 0 ? 0 : bytes / (nanos / 1e9) / (1 << 20));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.nbpeak.game.towerHanoi.batch;
+
+import org.nbpeak.game.towerHanoi.solver.HanoiSolver;
+import org.nbpeak.game.towerHanoi.solver.MoveConsumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 把最优解的每一步直接从求解器写进直接内存缓冲区，再由写线程批量写入{@link FileChannel}。
+ * 求解线程和写线程各用一块缓冲区交替工作，生成和写盘可以同时进行。
+ * <p>
+ * 二进制格式（大端）：
+ * <pre>
+ * magic    4字节 "HNOI"
+ * version  1字节
+ * bits     1字节，每步占用的位数，4根柱子以内为4，否则为8
+ * disks    1字节
+ * pegs     1字节
+ * moves    8字节，总步数
+ * data     每步 (from << bits/2 | to)，位数为4时每字节存两步，高4位在前
+ * </pre>
+ * 文本格式每行一步，如 "A->C"。
+ */
+public class SolutionExporter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 << 20;
+
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * 二进制格式每根柱子占4位，文本格式用A到P表示柱子，最多16根柱子
+     */
+    public static final int MAX_PEGS = 16;
+
+    public static final byte VERSION = 1;
+
+    private static final byte[] MAGIC = "HNOI".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 文本格式每行的字节数，"A->C\n"
+     */
+    private static final int TEXT_LINE_SIZE = 5;
+
+    /**
+     * 通知写线程结束的空缓冲区
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    public enum Format {
+        BINARY, TEXT
+    }
+
+    private final Format format;
+
+    private final int bufferSize;
+
+    public SolutionExporter(Format format) {
+        this(format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SolutionExporter(Format format, int bufferSize) {
+        if (bufferSize < HEADER_SIZE) {
+            throw new IllegalArgumentException("bufferSize too small: " + bufferSize);
+        }
+        this.format = format;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * 导出disks个方块、pegs根柱子的最优解
+     * @param solver
+     * @param file
+     * @return 写入的字节数
+     * @throws IOException
+     */
+    public long export(HanoiSolver solver, Path file) throws IOException {
+        if (solver.getPegs() > MAX_PEGS) {
+            throw new IllegalArgumentException("at most " + MAX_PEGS + " pegs can be exported: " + solver.getPegs());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel);
+            Thread thread = new Thread(writer, "hanoi-export");
+            thread.setDaemon(true);
+            thread.start();
+            try {
+                ByteBuffer buffer = writer.take();
+                if (format == Format.BINARY) {
+                    writeHeader(buffer, solver);
+                }
+                MoveSink sink = format == Format.BINARY
+                        ? new BinarySink(writer, buffer, solver.getPegs() <= 4 ? 4 : 8)
+                        : new TextSink(writer, buffer);
+                solver.solve(sink);
+                sink.finish();
+                writer.finish();
+                thread.join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("export interrupted", e);
+            } finally {
+                thread.interrupt();
+            }
+            writer.rethrow();
+            return channel.size();
+        }
+    }
+
+    private static void writeHeader(ByteBuffer buffer, HanoiSolver solver) {
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) (solver.getPegs() <= 4 ? 4 : 8));
+        buffer.put((byte) solver.getDisks());
+        buffer.put((byte) solver.getPegs());
+        buffer.putLong(solver.optimalMoves());
+    }
+
+    /**
+     * 写线程，在两块缓冲区之间轮换
+     */
+    private class Writer implements Runnable {
+        private final FileChannel channel;
+        private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+        private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(3);
+        private volatile IOException error;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+            for (int i = 0; i < 2; i++) {
+                free.add(ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.BIG_ENDIAN));
+            }
+        }
+
+        ByteBuffer take() throws InterruptedException {
+            return free.take();
+        }
+
+        /**
+         * 交出写满的缓冲区，换一块空的回来
+         */
+        ByteBuffer swap(ByteBuffer buffer) {
+            try {
+                rethrow();
+                buffer.flip();
+                full.put(buffer);
+                ByteBuffer next = free.take();
+                rethrow();
+                return next;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("export interrupted", e));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws InterruptedException {
+            full.put(END);
+        }
+
+        void rethrow() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ByteBuffer buffer = full.take();
+                    if (buffer == END) {
+                        return;
+                    }
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                    free.put(buffer);
+                }
+            } catch (IOException e) {
+                error = e;
+                free.offer(END);// 唤醒等待空缓冲区的求解线程
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private abstract static class MoveSink implements MoveConsumer {
+        final Writer writer;
+        ByteBuffer buffer;
+
+        MoveSink(Writer writer, ByteBuffer buffer) {
+            this.writer = writer;
+            this.buffer = buffer;
+        }
+
+        void finish() {
+            writer.swap(buffer);
+        }
+    }
+
+    private static class BinarySink extends MoveSink {
+        private final int bits;
+        private int pending = -1;
+
+        BinarySink(Writer writer, ByteBuffer buffer, int bits) {
+            super(writer, buffer);
+            this.bits = bits;
+        }
+
+        @Override
+        public void accept(int from, int to) {
+            if (bits == 8) {
+                put((byte) (from << 4 | to));
+            } else if (pending < 0) {
+                pending = from << 2 | to;
+            } else {
+                put((byte) (pending << 4 | from << 2 | to));
+                pending = -1;
+            }
+        }
+
+        private void put(byte b) {
+            buffer.put(b);
+            if (!buffer.hasRemaining()) {
+                buffer = writer.swap(buffer);
+            }
+        }
+
+        @Override
+        void finish() {
+            if (pending >= 0) {// 奇数步时最后半个字节补0
+                buffer.put((byte) (pending << 4));
+                pending = -1;
+            }
+            super.finish();
+        }
+    }
+
+    private static class TextSink extends MoveSink {
+        /**
+         * lines[from * 16 + to]：一行文本的前4个字节
+         */
+        private final int[] lines = new int[16 * 16];
+
+        TextSink(Writer writer, ByteBuffer buffer) {
+            super(writer, buffer);
+            for (int from = 0; from < 16; from++) {
+                for (int to = 0; to < 16; to++) {
+                    lines[from * 16 + to] = ('A' + from) << 24 | '-' << 16 | '>' << 8 | ('A' + to);
+                }
+            }
+        }
+
+        @Override
+        public void accept(int from, int to) {
+            if (buffer.remaining() < TEXT_LINE_SIZE) {
+                buffer = writer.swap(buffer);
+            }
+            buffer.putInt(lines[from * 16 + to]);
+            buffer.put((byte) '\n');
+        }
+    }
+}
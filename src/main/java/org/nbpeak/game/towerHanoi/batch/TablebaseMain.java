@@ -0,0 +1,82 @@
+package org.nbpeak.game.towerHanoi.batch;
+
+import org.nbpeak.game.towerHanoi.solver.Tablebase;
+import org.nbpeak.game.towerHanoi.solver.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 命令行生成多柱残局库，不会加载任何JavaFx类。
+ * <pre>
+ * java -cp TowerHanoi.jar org.nbpeak.game.towerHanoi.batch.TablebaseMain --disks 16 --pegs 4 --output hanoi-4-16.tb
+ * </pre>
+ */
+public class TablebaseMain {
+
+    private static final String USAGE = "Usage: TablebaseMain --disks N --pegs N --output FILE";
+
+    public static void main(String[] args) {
+        int disks = -1;
+        int pegs = -1;
+        String output = null;
+        TablebaseGenerator generator;
+        Path file;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--disks":
+                        disks = Integer.parseInt(value);
+                        break;
+                    case "--pegs":
+                        pegs = Integer.parseInt(value);
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (disks < 0 || pegs < 0 || output == null) {
+                throw new IllegalArgumentException("--disks, --pegs and --output are required");
+            }
+            generator = new TablebaseGenerator(disks, pegs);
+            file = Paths.get(output).toAbsolutePath();
+            long required = generator.fileSize() + generator.tempFileSize();
+            long usable;
+            try {
+                usable = Files.getFileStore(file.getParent()).getUsableSpace();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot write to " + file.getParent() + ": " + e);
+            }
+            if (required > usable) {
+                throw new IllegalArgumentException(disks + " disks on " + pegs + " pegs needs " + required
+                        + " bytes, only " + usable + " bytes free in " + file.getParent());
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            int maxDistance = generator.generate(file);
+            Tablebase tablebase = Tablebase.open(file);
+            System.err.printf("%d states, max distance %d, generated in %.3f s%n", tablebase.getStates(), maxDistance,
+                    (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.nbpeak.game.towerHanoi.broadcast;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 把对局以{@link Frames}广播给本机的观众端。
+ * 发布方法只把帧放进无锁队列并唤醒选择器，不会阻塞调用线程（JavaFx线程）；
+ * 所有观众连接都由一个选择器线程处理，每个观众有上限的待发送缓冲，积压超过上限时丢弃积压的帧，改发一帧最新快照。
+ */
+public class BroadcastServer implements Closeable {
+
+    /**
+     * 每个观众最多积压的字节数
+     */
+    private static final int MAX_PENDING_BYTES = 64 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
+
+    private final Queue<byte[]> published = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    /**
+     * 只在选择器线程中访问
+     */
+    private final Frames.State state = new Frames.State();
+
+    private final List<Client> clients = new ArrayList<>();
+
+    private Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * 在本机回环地址上监听
+     * @param port 端口，0表示随机端口
+     * @throws IOException
+     */
+    public BroadcastServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "hanoi-broadcast");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 发布一帧，可以在任意线程调用
+     * @param frame {@link Frames}编码的帧
+     */
+    public void publish(byte[] frame) {
+        if (closed) {
+            return;
+        }
+        published.offer(frame);
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (thread == null || !thread.isAlive()) {
+            shutdown();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isWritable()) {
+                        flush((Client) key.attachment());
+                    }
+                }
+                dispatch();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) {
+                e.printStackTrace();
+            }
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void shutdown() {
+        for (Client client : clients) {
+            closeQuietly(client.channel);
+        }
+        clients.clear();
+        closeQuietly(serverChannel);
+        closeQuietly(selector);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel);
+            client.key = channel.register(selector, 0, client);
+            clients.add(client);
+            client.offer(state.snapshot());// 新观众先收到当前局面
+            flush(client);
+        }
+    }
+
+    /**
+     * 把发布的帧分发给所有观众
+     */
+    private void dispatch() {
+        byte[] frame;
+        boolean any = false;
+        while ((frame = published.poll()) != null) {
+            state.apply(ByteBuffer.wrap(frame, Frames.LENGTH_SIZE, frame.length - Frames.LENGTH_SIZE));
+            for (Client client : clients) {
+                client.offer(frame);
+            }
+            any = true;
+        }
+        if (!any) {
+            return;
+        }
+        byte[] snapshot = null;
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            Client client = clients.get(i);
+            if (client.stale) {// 跟不上的观众改发最新快照
+                if (snapshot == null) {
+                    snapshot = state.snapshot();
+                }
+                client.pending.clear();
+                client.pendingBytes = 0;
+                client.stale = false;
+                client.offer(snapshot);
+            }
+            flush(client);
+        }
+    }
+
+    private void flush(Client client) {
+        try {
+            while (true) {
+                if (client.current == null) {
+                    byte[] next = client.pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    client.pendingBytes -= next.length;
+                    client.current = ByteBuffer.wrap(next);
+                }
+                client.channel.write(client.current);
+                if (client.current.hasRemaining()) {
+                    break;
+                }
+                client.current = null;
+            }
+            boolean idle = client.current == null;
+            client.key.interestOps(idle ? 0 : SelectionKey.OP_WRITE);
+        } catch (IOException e) {// 观众断开
+            client.key.cancel();
+            closeQuietly(client.channel);
+            clients.remove(client);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static class Client {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        /**
+         * 正在发送的帧，写了一半的帧不能丢弃
+         */
+        private ByteBuffer current;
+        private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+        private int pendingBytes;
+        private boolean stale;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void offer(byte[] frame) {
+            if (stale) {
+                return;
+            }
+            if (pendingBytes + frame.length > MAX_PENDING_BYTES) {
+                stale = true;
+                return;
+            }
+            pending.offer(frame);
+            pendingBytes += frame.length;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.nbpeak.game.towerHanoi.broadcast;
+
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 广播帧的编码和解码。每帧为 2字节长度（不含自身）+ 1字节类型 + 内容，大端：
+ * <pre>
+ * SNAPSHOT  disks(1) pegs(1) steps(4) elapsedMillis(8) status(1)，然后每根柱子 height(1) 从下往上的方块编号(height)
+ * MOVE      from(1) to(1) steps(4)
+ * TIME      elapsedMillis(8)
+ * </pre>
+ */
+public final class Frames {
+
+    public static final byte SNAPSHOT = 1;
+    public static final byte MOVE = 2;
+    public static final byte TIME = 3;
+
+    /**
+     * 长度前缀的字节数
+     */
+    public static final int LENGTH_SIZE = 2;
+
+    private Frames() {
+    }
+
+    public static byte[] snapshot(Board board, int steps, long elapsedMillis, int status) {
+        int size = 1 + 1 + 1 + 4 + 8 + 1 + board.getPegs() + board.getDisks();
+        ByteBuffer buffer = allocate(size);
+        buffer.put(SNAPSHOT).put((byte) board.getDisks()).put((byte) board.getPegs())
+                .putInt(steps).putLong(elapsedMillis).put((byte) status);
+        for (int peg = 0; peg < board.getPegs(); peg++) {
+            int height = board.height(peg);
+            buffer.put((byte) height);
+            for (int i = 0; i < height; i++) {
+                buffer.put((byte) board.diskAt(peg, i));
+            }
+        }
+        return buffer.array();
+    }
+
+    public static byte[] move(int from, int to, int steps) {
+        return allocate(1 + 1 + 1 + 4).put(MOVE).put((byte) from).put((byte) to).putInt(steps).array();
+    }
+
+    public static byte[] time(long elapsedMillis) {
+        return allocate(1 + 8).put(TIME).putLong(elapsedMillis).array();
+    }
+
+    private static ByteBuffer allocate(int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_SIZE + size);
+        buffer.putShort((short) size);
+        return buffer;
+    }
+
+    /**
+     * 按帧更新的局面，服务端用它生成快照，观众端用它显示
+     */
+    public static class State {
+        private Board board = new Board(0, 3);
+        private int steps;
+        private long elapsedMillis;
+        private int status;
+
+        /**
+         * 应用一帧
+         * @param frame 类型开始的帧内容，读完后position位于帧末尾
+         */
+        public void apply(ByteBuffer frame) {
+            byte type = frame.get();
+            switch (type) {
+                case SNAPSHOT: {
+                    int disks = frame.get();
+                    int pegs = frame.get();
+                    steps = frame.getInt();
+                    elapsedMillis = frame.getLong();
+                    status = frame.get();
+                    if (board.getDisks() != disks || board.getPegs() != pegs) {
+                        board = new Board(disks, pegs);
+                    }
+                    board.clear();
+                    for (int peg = 0; peg < pegs; peg++) {
+                        int height = frame.get();
+                        for (int i = 0; i < height; i++) {
+                            board.place(peg, frame.get());
+                        }
+                    }
+                    break;
+                }
+                case MOVE: {
+                    int from = frame.get();
+                    int to = frame.get();
+                    steps = frame.getInt();
+                    if (board.canMove(from, to)) {
+                        board.move(from, to);
+                    }
+                    break;
+                }
+                case TIME:
+                    elapsedMillis = frame.getLong();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown frame type " + type);
+            }
+        }
+
+        public byte[] snapshot() {
+            return Frames.snapshot(board, steps, elapsedMillis, status);
+        }
+
+        public Board getBoard() {
+            return board;
+        }
+
+        public int getSteps() {
+            return steps;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.nbpeak.game.towerHanoi.broadcast;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+
+/**
+ * 观众端连接，在后台线程中读取{@link Frames}并更新局面，每收到一批帧通知一次
+ */
+public class SpectatorClient implements Closeable {
+
+    private final SocketChannel channel;
+
+    private final Frames.State state = new Frames.State();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    private Thread thread;
+
+    private volatile boolean closed;
+
+    public SpectatorClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+    }
+
+    /**
+     * 开始接收
+     * @param listener 收到一批帧之后在后台线程中调用，读取局面时需要对参数加锁
+     * @param onClose  连接断开时调用
+     */
+    public void start(Consumer<Frames.State> listener, Runnable onClose) {
+        thread = new Thread(() -> {
+            try {
+                while (!closed) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException();
+                    }
+                    buffer.flip();
+                    boolean changed = false;
+                    synchronized (state) {
+                        while (buffer.remaining() >= Frames.LENGTH_SIZE) {
+                            int length = buffer.getShort(buffer.position()) & 0xFFFF;
+                            if (buffer.remaining() < Frames.LENGTH_SIZE + length) {
+                                break;
+                            }
+                            int end = buffer.position() + Frames.LENGTH_SIZE + length;
+                            buffer.position(buffer.position() + Frames.LENGTH_SIZE);
+                            state.apply(buffer);
+                            buffer.position(end);
+                            changed = true;
+                        }
+                    }
+                    buffer.compact();
+                    if (changed) {
+                        listener.accept(state);
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    onClose.run();
+                }
+            } catch (RuntimeException e) {// 未知的帧类型或不合法的局面，断开连接，不让线程悄悄退出
+                e.printStackTrace();
+                if (!closed) {
+                    closeQuietly();
+                    onClose.run();
+                }
+            }
+        }, "hanoi-spectator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
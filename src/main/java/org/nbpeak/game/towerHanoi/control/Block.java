@@ -2,21 +2,15 @@ package org.nbpeak.game.towerHanoi.control;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.IntegerPropertyBase;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.Control;
 import javafx.scene.control.Skin;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
-import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import org.nbpeak.game.towerHanoi.control.skin.BlockSkin;
 
-import java.util.Comparator;
-import java.util.Random;
-
 /**
  * 汉诺塔中的方块
  */
@@ -27,30 +21,10 @@ public class Block extends Control {
 
     public static final int MAX_BLOCK_SIZE = 10;
 
-    private static int TOTAL_BLOCK_SIZE = MAX_BLOCK_SIZE;
+    public final static double MAX_WIDTH = BlockFactory.widthOf(MAX_BLOCK_SIZE);
 
     private int putOrder;
 
-    private final static ObservableList<Block> ALL_BLOCKS = FXCollections.observableArrayList();
-
-    public final static double MAX_WIDTH;
-
-    static {// 初始化方块集合，最多10个。
-        double w = DEFAULT_MIN_WIDTH;
-        double maxW = w;
-        for (int i = 0; i < MAX_BLOCK_SIZE; i++) {
-            Random random = new Random();
-            int index = MAX_BLOCK_SIZE - i;
-            Block block = new Block(i + 1, index);
-            block.setPrefSize(w, DEFAULT_HEIGHT);
-            block.fill(Color.rgb(random.nextInt(255), random.nextInt(255), random.nextInt(255)));
-            ALL_BLOCKS.add(block);
-            maxW = w;
-            w += 30;
-        }
-        MAX_WIDTH = maxW;
-    }
-
     /**
      * 方块编号
      */
@@ -74,11 +48,8 @@ public class Block extends Control {
         return putOrder;
     }
 
-    /**
-     * 在方块集合中找到最大的putOrder，然后在此基础上加1，表示当前方块是最后放入
-     */
-    public void addPutOrder() {
-        putOrder = ALL_BLOCKS.stream().max(Comparator.comparingInt(Block::getPutOrder)).map(Block::getPutOrder).orElse(getPutOrder()) + 1;
+    void setPutOrder(int putOrder) {
+        this.putOrder = putOrder;
     }
 
     public int getNodeNum() {
@@ -123,35 +94,4 @@ public class Block extends Control {
     protected Skin<?> createDefaultSkin() {
         return new BlockSkin(this);
     }
-
-    public static int getTotalBlockSize() {
-        return TOTAL_BLOCK_SIZE;
-    }
-
-    /**
-     * 获取指定数量的方块
-     * @param size
-     * @return
-     */
-    public static ObservableList<Block> getBlocks(int size) {
-        resetOrder();
-        ObservableList<Block> list = FXCollections.observableArrayList();
-        if (size < MAX_BLOCK_SIZE) {
-            list.addAll(ALL_BLOCKS.subList(0, size));
-        } else {
-            list.addAll(ALL_BLOCKS);
-        }
-        TOTAL_BLOCK_SIZE = list.size();
-        return list;
-    }
-
-    /**
-     * 重设方块顺序
-     */
-    private static void resetOrder() {
-        for (int i = 0; i < ALL_BLOCKS.size(); i++) {
-            int index = MAX_BLOCK_SIZE - i;
-            ALL_BLOCKS.get(i).putOrder = index;
-        }
-    }
 }
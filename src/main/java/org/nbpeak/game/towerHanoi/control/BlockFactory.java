@@ -0,0 +1,103 @@
+package org.nbpeak.game.towerHanoi.control;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 方块工厂，每个游戏面板持有一个。方块在第一次需要时才创建，之后重来或调整数量时复用已创建的方块。
+ */
+public class BlockFactory {
+
+    /**
+     * 相邻方块的宽度差
+     */
+    public static final double WIDTH_STEP = 30;
+
+    /**
+     * 黄金角，让相邻编号的方块色相尽量拉开
+     */
+    private static final double GOLDEN_ANGLE = 137.508;
+
+    /**
+     * 已创建的方块，下标为 nodeNum - 1
+     */
+    private final List<Block> createdBlocks = new ArrayList<>();
+
+    /**
+     * 当前使用中的方块数量
+     */
+    private int totalBlockSize;
+
+    /**
+     * 当前最大的放入顺序
+     */
+    private int maxPutOrder;
+
+    /**
+     * 根据方块编号计算宽度
+     * @param nodeNum 方块编号，从1开始
+     * @return
+     */
+    public static double widthOf(int nodeNum) {
+        return Block.DEFAULT_MIN_WIDTH + (nodeNum - 1) * WIDTH_STEP;
+    }
+
+    /**
+     * 根据方块编号计算颜色，同一编号的方块颜色总是相同
+     * @param nodeNum 方块编号，从1开始
+     * @return
+     */
+    public static Color colorOf(int nodeNum) {
+        return Color.hsb((nodeNum * GOLDEN_ANGLE) % 360, 0.6, 0.9);
+    }
+
+    /**
+     * 获取指定数量的方块，不够时才创建新的方块
+     * @param size
+     * @return
+     */
+    public ObservableList<Block> getBlocks(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative: " + size);
+        }
+        for (int i = createdBlocks.size(); i < size; i++) {
+            createdBlocks.add(createBlock(i + 1));
+        }
+        totalBlockSize = size;
+        resetOrder();
+        return FXCollections.observableArrayList(createdBlocks.subList(0, size));
+    }
+
+    private Block createBlock(int nodeNum) {
+        Block block = new Block(nodeNum);
+        block.setPrefSize(widthOf(nodeNum), Block.DEFAULT_HEIGHT);
+        block.fill(colorOf(nodeNum));
+        return block;
+    }
+
+    /**
+     * 重设方块顺序，编号越小的方块越靠上
+     */
+    private void resetOrder() {
+        for (int i = 0; i < totalBlockSize; i++) {
+            createdBlocks.get(i).setPutOrder(totalBlockSize - i);
+        }
+        maxPutOrder = totalBlockSize;
+    }
+
+    /**
+     * 返回下一个放入顺序，保证比当前所有方块的放入顺序都大
+     * @return
+     */
+    int nextPutOrder() {
+        return ++maxPutOrder;
+    }
+
+    public int getTotalBlockSize() {
+        return totalBlockSize;
+    }
+}
@@ -0,0 +1,178 @@
+package org.nbpeak.game.towerHanoi.control;
+
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+import java.util.List;
+
+/**
+ * 键盘走子：依次按两个数字键（1、2、3对应A、B、C）表示从哪个堆栈移到哪个堆栈，Esc取消已选的堆栈。
+ * 按键解码后立即在局面模型上校验，合法的移动放进定长的int环形队列，在下一个脉冲布局之前统一执行，
+ * 连续快速按键不会丢失，也不用等每一步布局完成。
+ */
+public class KeyboardMoveQueue {
+
+    /**
+     * 队列容量，每个脉冲都会清空队列，正常按键速度远远用不完
+     */
+    private static final int CAPACITY = 64;
+
+    private final List<Stack> stacks;
+
+    private final MoveAnimator animator;
+
+    /**
+     * 环形队列，每个元素为 from << 8 | to
+     */
+    private final int[] moves = new int[CAPACITY];
+
+    private int head;
+
+    private int size;
+
+    /**
+     * 执行完队列中所有移动之后的局面
+     */
+    private Board model;
+
+    /**
+     * 已选的起始堆栈，-1表示未选
+     */
+    private int selected = -1;
+
+    private boolean enabled;
+
+    private boolean pulseRequested;
+
+    private final EventHandler<KeyEvent> keyHandler = event -> {
+        if (!enabled) {
+            return;
+        }
+        int index = stackIndex(event.getCode());
+        if (index >= 0) {
+            keyPressed(index);
+            event.consume();
+        } else if (event.getCode() == KeyCode.ESCAPE) {
+            selected = -1;
+            event.consume();
+        }
+    };
+
+    private final Runnable pulseListener = this::drain;
+
+    public KeyboardMoveQueue(List<Stack> stacks, MoveAnimator animator) {
+        this.stacks = stacks;
+        this.animator = animator;
+    }
+
+    /**
+     * 监听场景的按键，并在每个脉冲布局之前执行队列中的移动
+     * @param scene
+     */
+    public void install(Scene scene) {
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, keyHandler);
+        scene.addPreLayoutPulseListener(pulseListener);
+    }
+
+    public void uninstall(Scene scene) {
+        scene.removeEventFilter(KeyEvent.KEY_PRESSED, keyHandler);
+        scene.removePreLayoutPulseListener(pulseListener);
+    }
+
+    /**
+     * 开始接收按键
+     */
+    public void start() {
+        enabled = true;
+        clear();
+    }
+
+    /**
+     * 停止接收按键，丢弃未执行的移动
+     */
+    public void stop() {
+        enabled = false;
+        clear();
+    }
+
+    private void clear() {
+        head = 0;
+        size = 0;
+        selected = -1;
+    }
+
+    private int stackIndex(KeyCode code) {
+        switch (code) {
+            case DIGIT1:
+            case NUMPAD1:
+                return stacks.size() > 0 ? 0 : -1;
+            case DIGIT2:
+            case NUMPAD2:
+                return stacks.size() > 1 ? 1 : -1;
+            case DIGIT3:
+            case NUMPAD3:
+                return stacks.size() > 2 ? 2 : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 按下某个堆栈对应的键
+     * @param index 堆栈下标
+     */
+    public void keyPressed(int index) {
+        if (!enabled) {
+            return;
+        }
+        if (selected < 0) {
+            selected = index;
+            return;
+        }
+        int from = selected;
+        selected = -1;
+        if (from == index) {// 同一个键按两次取消选择
+            return;
+        }
+        if (size == CAPACITY) {// 队列满了就马上执行，不丢弃按键
+            drain();
+        }
+        if (size == 0) {// 队列空的时候界面就是最新局面
+            model = Stack.toBoard(stacks, model);
+        }
+        if (!model.canMove(from, index)) {
+            return;
+        }
+        model.move(from, index);
+        moves[(head + size) % CAPACITY] = from << 8 | index;
+        size++;
+        if (!pulseRequested) {
+            pulseRequested = true;
+            Platform.requestNextPulse();
+        }
+    }
+
+    /**
+     * 依次把队列中的方块放入目标堆栈。{@link MoveAnimator}只记下起点，整批移动在这个脉冲的布局阶段一起布局，
+     * 动画轨迹在布局后统一计算；步数、观众广播和状态图由入栈事件的监听方在每个脉冲合并发布一次
+     */
+    private void drain() {
+        pulseRequested = false;
+        while (size > 0) {
+            int move = moves[head];
+            head = (head + 1) % CAPACITY;
+            size--;
+            Block block = stacks.get(move >>> 8).getTopBlock();
+            if (block == null || !animator.move(block, stacks.get(move & 0xFF))) {
+                // 鼠标拖动改变了局面，剩下的移动作废
+                head = 0;
+                size = 0;
+                break;
+            }
+        }
+    }
+}
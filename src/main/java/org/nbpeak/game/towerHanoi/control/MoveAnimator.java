@@ -0,0 +1,296 @@
+package org.nbpeak.game.towerHanoi.control;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Point2D;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 方块移动动画。方块先立即放入目标堆栈（逻辑状态和步数不受动画影响），再通过平移从起点经“抬起-平移-落下”回到新位置。
+ * 所有正在移动的方块共用一个{@link AnimationTimer}，每帧统一计算位置，不为每次移动创建Transition。
+ * 同一帧内排入的移动超过{@link #MAX_MOVES_PER_FRAME}时，说明移动速度超过了帧率，所有动画直接跳到终点。
+ * <p>
+ * 移动时只记下起点，不强制布局；方块在目标堆栈中的位置等脉冲的布局阶段算好之后，在布局后的脉冲监听中统一计算，
+ * 同一个脉冲内的多次移动只需要布局一次。
+ */
+public class MoveAnimator {
+
+    /**
+     * 一次移动动画的时长（纳秒）
+     */
+    private static final long DURATION = 300_000_000L;
+
+    /**
+     * 抬起时高出堆栈顶部的距离
+     */
+    private static final double LIFT_HEIGHT = 20;
+
+    private static final int MAX_MOVES_PER_FRAME = 1;
+
+    /**
+     * 正在移动的方块
+     */
+    private final List<Flight> flights = new ArrayList<>();
+
+    /**
+     * 已经放入目标堆栈、等待布局后计算轨迹的方块
+     */
+    private final List<Flight> pending = new ArrayList<>();
+
+    /**
+     * 监听布局的场景
+     */
+    private Scene scene;
+
+    private final Runnable layoutListener = this::placePending;
+
+    /**
+     * 上一帧之后新排入的移动数
+     */
+    private int queuedSinceLastFrame;
+
+    private boolean running;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            boolean skip = queuedSinceLastFrame > MAX_MOVES_PER_FRAME;
+            queuedSinceLastFrame = 0;
+            for (int i = flights.size() - 1; i >= 0; i--) {
+                Flight flight = flights.get(i);
+                if (flight.startTime < 0) {
+                    flight.startTime = now;
+                }
+                double t = skip ? 1 : (double) (now - flight.startTime) / DURATION;
+                if (flight.update(t)) {
+                    flights.remove(i);
+                    releaseStack(flight.target);
+                }
+            }
+            if (flights.isEmpty()) {
+                stopTimer();
+            }
+        }
+    };
+
+    /**
+     * 把方块从当前位置移动到目标堆栈，并播放动画
+     * @param block
+     * @param target
+     * @return 方块是否放入了目标堆栈
+     */
+    public boolean move(Block block, Stack target) {
+        return move(block, target, block.localToScene(0, 0));
+    }
+
+    /**
+     * 把方块移动到目标堆栈，动画从场景坐标start开始，用于拖动结束时从鼠标释放的位置落下
+     * @param block
+     * @param target
+     * @param start 方块左上角在场景中的坐标
+     * @return 方块是否放入了目标堆栈
+     */
+    public boolean move(Block block, Stack target, Point2D start) {
+        Objects.requireNonNull(block);
+        Objects.requireNonNull(target);
+        Objects.requireNonNull(start);
+        if (!target.putBlock(block)) {
+            return false;
+        }
+        Point2D pendingStart = cancel(block);
+        Scene blockScene = block.getScene();
+        if (blockScene == null) {
+            return true;
+        }
+        listen(blockScene);
+        // 同一个脉冲内移动了两次，方块还没有按上一次的目标布局，起点仍然是上一次的起点
+        pending.add(new Flight(block, target, pendingStart == null ? start : pendingStart));
+        target.setViewOrder(-1);// 移动中的方块显示在其他堆栈上面
+        queuedSinceLastFrame++;
+        return true;
+    }
+
+    /**
+     * 提前监听场景的布局，不调用时在第一次移动时监听
+     * @param scene
+     */
+    public void install(Scene scene) {
+        listen(scene);
+    }
+
+    private void listen(Scene blockScene) {
+        if (scene == blockScene) {
+            return;
+        }
+        if (scene != null) {
+            scene.removePostLayoutPulseListener(layoutListener);
+        }
+        scene = blockScene;
+        scene.addPostLayoutPulseListener(layoutListener);
+    }
+
+    /**
+     * 布局之后计算等待中的方块的轨迹，并在渲染之前移回起点
+     */
+    private void placePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Flight flight = pending.remove(i);
+            if (flight.place()) {
+                flight.update(0);
+                flights.add(flight);
+            } else {// 方块已经不在场景中
+                releaseStack(flight.target);
+            }
+        }
+        if (!flights.isEmpty() && !running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    /**
+     * 停止所有动画，方块回到各自的布局位置
+     */
+    public void stop() {
+        for (Flight flight : flights) {
+            flight.update(1);
+            flight.target.setViewOrder(0);
+        }
+        for (Flight flight : pending) {
+            flight.update(1);
+            flight.target.setViewOrder(0);
+        }
+        flights.clear();
+        pending.clear();
+        queuedSinceLastFrame = 0;
+        stopTimer();
+    }
+
+    /**
+     * 取消方块正在进行或等待中的移动
+     * @return 等待中的移动的起点，没有时返回null
+     */
+    private Point2D cancel(Block block) {
+        Point2D start = null;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Flight flight = pending.get(i);
+            if (flight.block == block) {
+                pending.remove(i);
+                releaseStack(flight.target);
+                start = flight.start;
+            }
+        }
+        for (int i = flights.size() - 1; i >= 0; i--) {
+            Flight flight = flights.get(i);
+            if (flight.block == block) {
+                flights.remove(i);
+                releaseStack(flight.target);
+            }
+        }
+        return start;
+    }
+
+    private void releaseStack(Stack stack) {
+        for (Flight flight : flights) {
+            if (flight.target == stack) {
+                return;
+            }
+        }
+        for (Flight flight : pending) {
+            if (flight.target == stack) {
+                return;
+            }
+        }
+        stack.setViewOrder(0);
+    }
+
+    private void stopTimer() {
+        if (running) {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    /**
+     * 一个方块的移动轨迹，坐标都是相对于布局位置的平移量，终点为(0, 0)
+     */
+    private static class Flight {
+        private final Block block;
+        private final Stack target;
+        /**
+         * 方块左上角起点的场景坐标
+         */
+        private final Point2D start;
+        private double startX;
+        private double startY;
+        private double liftY;
+        private double lift;
+        private double slide;
+        private double total;
+        private long startTime = -1;
+
+        Flight(Block block, Stack target, Point2D start) {
+            this.block = block;
+            this.target = target;
+            this.start = start;
+        }
+
+        /**
+         * 按布局好的位置计算轨迹
+         * @return 方块是否还在场景中
+         */
+        boolean place() {
+            Parent parent = block.getParent();
+            if (parent == null || block.getScene() == null) {
+                return false;
+            }
+            Point2D from = parent.sceneToLocal(start);
+            Point2D top = parent.sceneToLocal(target.localToScene(0, 0));
+            startX = from.getX() - block.getLayoutX();
+            startY = from.getY() - block.getLayoutY();
+            liftY = Math.min(Math.min(top.getY() - LIFT_HEIGHT - block.getLayoutY(), startY), 0);
+            lift = startY - liftY;
+            slide = Math.abs(startX);
+            total = lift + slide - liftY;
+            return true;
+        }
+
+        /**
+         * 按进度t（0到1）更新方块位置
+         * @return 动画是否结束
+         */
+        boolean update(double t) {
+            if (t >= 1 || total <= 0) {
+                block.setTranslateX(0);
+                block.setTranslateY(0);
+                return true;
+            }
+            double d = ease(Math.max(t, 0)) * total;
+            double x, y;
+            if (d < lift) {// 抬起
+                x = startX;
+                y = startY - d;
+            } else if (d < lift + slide) {// 平移
+                x = startX - Math.signum(startX) * (d - lift);
+                y = liftY;
+            } else {// 落下
+                x = 0;
+                y = liftY + (d - lift - slide);
+            }
+            block.setTranslateX(x);
+            block.setTranslateY(y);
+            return false;
+        }
+
+        private static double ease(double t) {
+            return t * t * (3 - 2 * t);
+        }
+    }
+}
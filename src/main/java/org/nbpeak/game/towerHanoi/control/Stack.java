@@ -19,14 +19,16 @@ import javafx.scene.shape.Line;
 import javafx.scene.text.Font;
 import org.nbpeak.game.towerHanoi.event.StackInEvent;
 import org.nbpeak.game.towerHanoi.event.StackOutEvent;
+import org.nbpeak.game.towerHanoi.solver.Board;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
 /**
- * 汉诺塔堆栈，只能通过 {@link #putBlock(Block)} 放入方块，不需要给外部暴露{@link #getChildren()}方法，所以继承{@link #Region}就可以了
+ * 汉诺塔堆栈，只能通过 {@link #putBlock(Block)} 放入方块（需要动画时通过{@link MoveAnimator}），不需要给外部暴露{@link #getChildren()}方法，所以继承{@link #Region}就可以了
  */
 public class Stack extends Region {
 
@@ -59,6 +61,11 @@ public class Stack extends Region {
 
     private StringProperty name = new SimpleStringProperty(this, "name");
 
+    /**
+     * 方块工厂，同一个游戏面板中的堆栈共用一个
+     */
+    private final BlockFactory blockFactory;
+
     /**
      * 方块开始移动时（鼠标按下）
      */
@@ -104,6 +111,7 @@ public class Stack extends Region {
             return;
         }
         Block block = proxy.getBlock();// 取出被代理的方块
+        Point2D blockPoint = proxy.localToScene(0, 0);// 代理方块释放时的位置，作为移动动画的起点
         proxyBox.getChildren().remove(proxy);// 移除掉代理方块
         proxy = null;
         EventTarget target = event.getTarget();
@@ -111,15 +119,20 @@ public class Stack extends Region {
             return;
         }
         // 触发出栈事件，传入出栈的方块和鼠标指针相对于场景的坐标点
-        fireEvent(new StackOutEvent(block, new Point2D(event.getSceneX(), event.getSceneY())));
+        fireEvent(new StackOutEvent(block, new Point2D(event.getSceneX(), event.getSceneY()), blockPoint));
     };
 
-    public Stack() {
-        this("");
+    /**
+     * 同一局游戏的所有堆栈必须共用一个{@link BlockFactory}，方块总数（决定背景线高度）和放入顺序都由它统一管理
+     * @param blockFactory
+     */
+    public Stack(BlockFactory blockFactory) {
+        this("", blockFactory);
     }
 
-    public Stack(String name) {
+    public Stack(String name, BlockFactory blockFactory) {
         super();
+        this.blockFactory = Objects.requireNonNull(blockFactory);
         setName(name);
         initialize();
     }
@@ -156,7 +169,7 @@ public class Stack extends Region {
     }
 
     private double getLineHeight(double height) {
-        double blockHeight = Block.DEFAULT_HEIGHT * Block.getTotalBlockSize() + 50;
+        double blockHeight = Block.DEFAULT_HEIGHT * blockFactory.getTotalBlockSize() + 50;
         return Math.max(Math.max(height, DEFAULT_LINE_HEIGHT), blockHeight);
     }
 
@@ -189,23 +202,26 @@ public class Stack extends Region {
     /**
      * 方块放入汉诺塔堆栈
      * @param block
+     * @return 方块是否放入
      */
-    public void putBlock(Block block) {
+    public boolean putBlock(Block block) {
         Objects.requireNonNull(block);
         if (blocks.contains(block)) { // 已经存在，不用再放入
-            return;
+            return false;
         }
 
         // 判断要放入的方块是否比堆栈最顶部的方块大
         Block topBlock = getTopBlock();
         if (topBlock != null && topBlock.getNodeNum() < block.getNodeNum()) {
-            return;
+            return false;
         }
 
+        Stack from = block.getParent() instanceof StackBox ? ((StackBox) block.getParent()).getStack() : null;
         setBlockMouseEvent(block); // 重新设置方块在此堆栈中的鼠标事件
-        block.addPutOrder(); // 放入顺序+1
+        block.setPutOrder(blockFactory.nextPutOrder()); // 放入顺序取所有堆栈中最大的+1
         blocks.add(block); // 方块入栈
-        fireEvent(new StackInEvent(getBlockSize())); // 触发方块入栈事件
+        fireEvent(new StackInEvent(getBlockSize(), from)); // 触发方块入栈事件
+        return true;
     }
 
     private void setBlockMouseEvent(Block block) {
@@ -219,7 +235,7 @@ public class Stack extends Region {
      * @param blockSize 方块的数量
      */
     public void initBlocks(int blockSize) {
-        ObservableList<Block> blocks = Block.getBlocks(blockSize);
+        ObservableList<Block> blocks = blockFactory.getBlocks(blockSize);
         blocks.forEach(block -> {
             setBlockMouseEvent(block);
         });
@@ -235,11 +251,45 @@ public class Stack extends Region {
         return blocks.size();
     }
 
+    /**
+     * 获取堆栈中的方块，从下往上排列
+     * @return
+     */
+    public List<Block> getBlocks() {
+        List<Block> list = new ArrayList<>(blocks.size());
+        blocks.forEach(node -> list.add((Block) node));
+        list.sort(Comparator.comparingInt(Block::getPutOrder));
+        return list;
+    }
+
+    /**
+     * 按堆栈中的方块生成局面，第i个堆栈对应第i根柱子
+     * @param stacks
+     * @param board 方块数和柱子数一致时复用，可以为null
+     * @return
+     */
+    public static Board toBoard(List<Stack> stacks, Board board) {
+        int disks = 0;
+        for (Stack stack : stacks) {
+            disks += stack.getBlockSize();
+        }
+        if (board == null || board.getDisks() != disks || board.getPegs() != stacks.size()) {
+            board = new Board(disks, stacks.size());
+        }
+        board.clear();
+        for (int i = 0; i < stacks.size(); i++) {
+            for (Block block : stacks.get(i).getBlocks()) {
+                board.place(i, block.getNodeNum());
+            }
+        }
+        return board;
+    }
+
     /**
      * 获取堆栈中最顶部的方块
      * @return
      */
-    private Block getTopBlock() {
+    public Block getTopBlock() {
         return blocks.stream()
                 .map(node -> ((Block) node))
                 .max(Comparator.comparingInt(Block::getPutOrder))
@@ -324,10 +374,14 @@ public class Stack extends Region {
 
     /**
      * 汉诺塔的容器，由于VBox会将最后放入的元素放在最底部，而汉诺塔的方块是最后放入的在最顶部，所以每次显示时需要将容器中的元素重新排序。
-     * 排序规则按{@link Block#getPutOrder()}进行倒序排列，方块每次放入汉诺塔堆栈时，会调用{@link Block#addPutOrder()}，
-     * 此方法会将方块的排序顺序设置成最大putOrder+1。这样即可保证每次最后放入汉诺塔堆栈的方块在最上面。
+     * 排序规则按{@link Block#getPutOrder()}进行倒序排列，方块每次放入汉诺塔堆栈时，
+     * 会从共用的{@link BlockFactory}取下一个放入顺序，也就是最大putOrder+1。这样即可保证每次最后放入汉诺塔堆栈的方块在最上面。
      */
     class StackBox extends VBox {
+        Stack getStack() {
+            return Stack.this;
+        }
+
         @Override
         protected List<Block> getManagedChildren() {
             List<Block> managedChildren = super.getManagedChildren();
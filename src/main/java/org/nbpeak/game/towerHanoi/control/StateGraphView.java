@@ -0,0 +1,318 @@
+package org.nbpeak.game.towerHanoi.control;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import org.nbpeak.game.towerHanoi.state.GameSnapshot;
+
+/**
+ * 三柱汉诺塔的状态图（谢尔宾斯基三角形布局），标出当前局面和到目标局面（全部在C）的最优路径。
+ * <p>
+ * 每个方块数只计算一次所有局面的坐标，存放在float数组中；所有局面画在底层画布上，只在方块数变化时重画。
+ * 当前局面和最优路径画在上层画布上，每走一步只清除并重画变化的区域。
+ * 局面编号：第i小的方块（从0开始）所在柱子是3进制的第i位，和{@link org.nbpeak.game.towerHanoi.solver.Tablebase}一致。
+ */
+public class StateGraphView extends Region {
+
+    public static final double DEFAULT_SIZE = 400;
+
+    public static final int MAX_DISKS = 12;
+
+    private static final int PEGS = 3;
+
+    /**
+     * 方块数不超过这个值时画出所有的边，否则只画点
+     */
+    private static final int MAX_DISKS_WITH_EDGES = 7;
+
+    private static final double PADDING = 10;
+
+    private static final double MARKER_RADIUS = 5;
+
+    /**
+     * 三根柱子对应三角形的三个顶点：A在上，B在左下，C在右下
+     */
+    private static final double[] CORNER_X = {0.5, 0, 1};
+    private static final double[] CORNER_Y = {0, 1, 1};
+
+    private final Canvas baseCanvas = new Canvas(DEFAULT_SIZE, DEFAULT_SIZE);
+
+    private final Canvas overlayCanvas = new Canvas(DEFAULT_SIZE, DEFAULT_SIZE);
+
+    private int disks = -1;
+
+    /**
+     * pow3[i] = 3^i
+     */
+    private int[] pow3;
+
+    /**
+     * 局面坐标，xy[2 * state]、xy[2 * state + 1]，范围0到1
+     */
+    private float[] xy;
+
+    /**
+     * 最优路径上的局面，path[0]是当前局面
+     */
+    private int[] path;
+    private int pathLength;
+
+    private int[] previousPath;
+    private int previousPathLength;
+
+    /**
+     * 计算最优路径时每个方块所在的柱子
+     */
+    private final int[] pegs = new int[MAX_DISKS];
+    private int pathState;
+
+    public StateGraphView() {
+        overlayCanvas.setMouseTransparent(true);
+        getChildren().addAll(baseCanvas, overlayCanvas);
+        setPrefSize(DEFAULT_SIZE, DEFAULT_SIZE);
+        setMinSize(DEFAULT_SIZE, DEFAULT_SIZE);
+        setMaxSize(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        baseCanvas.relocate(0, 0);
+        overlayCanvas.relocate(0, 0);
+    }
+
+    /**
+     * 显示快照中的局面，只支持三根柱子
+     * @param snapshot
+     */
+    public void show(GameSnapshot snapshot) {
+        if (snapshot.getPegs() != PEGS || snapshot.getDisks() > MAX_DISKS) {
+            return;
+        }
+        if (snapshot.getDisks() != disks) {
+            setDisks(snapshot.getDisks());
+        }
+        int state = 0;
+        for (int disk = 1; disk <= disks; disk++) {
+            state += snapshot.pegOf(disk) * pow3[disk - 1];
+        }
+        showState(state);
+    }
+
+    private void setDisks(int disks) {
+        this.disks = disks;
+        pow3 = new int[disks + 1];
+        pow3[0] = 1;
+        for (int i = 1; i <= disks; i++) {
+            pow3[i] = pow3[i - 1] * PEGS;
+        }
+        xy = computeCoordinates(disks, pow3[disks]);
+        path = new int[1 << disks];
+        previousPath = new int[1 << disks];
+        pathLength = 0;
+        previousPathLength = 0;
+        drawBase();
+        overlayCanvas.getGraphicsContext2D().clearRect(0, 0, overlayCanvas.getWidth(), overlayCanvas.getHeight());
+    }
+
+    /**
+     * 计算所有局面的坐标。最大的方块决定局面在哪个子三角形，
+     * 进入子三角形后另外两根柱子对应的顶点互换，这样相邻子三角形之间只差最大方块一步的两个局面正好靠在一起。
+     */
+    private static float[] computeCoordinates(int disks, int states) {
+        float[] xy = new float[states * 2];
+        double total = (1 << disks) - 1;
+        int[] corner = new int[PEGS];
+        for (int state = 0; state < states; state++) {
+            corner[0] = 0;
+            corner[1] = 1;
+            corner[2] = 2;
+            double x = 0, y = 0;
+            int remaining = state;
+            int divisor = 1;
+            for (int i = 1; i < disks; i++) {
+                divisor *= PEGS;
+            }
+            for (int d = disks - 1; d >= 0; d--) {// 从最大的方块开始
+                int peg = remaining / divisor;
+                remaining %= divisor;
+                divisor /= PEGS;
+                double weight = (1 << d) / total;
+                x += CORNER_X[corner[peg]] * weight;
+                y += CORNER_Y[corner[peg]] * weight;
+                int a = (peg + 1) % PEGS, b = (peg + 2) % PEGS;
+                int tmp = corner[a];
+                corner[a] = corner[b];
+                corner[b] = tmp;
+            }
+            xy[state * 2] = (float) x;
+            xy[state * 2 + 1] = (float) y;
+        }
+        return xy;
+    }
+
+    private double toX(int state) {
+        return PADDING + xy[state * 2] * (baseCanvas.getWidth() - PADDING * 2);
+    }
+
+    private double toY(int state) {
+        return PADDING + xy[state * 2 + 1] * (baseCanvas.getHeight() - PADDING * 2);
+    }
+
+    /**
+     * 画出所有局面，只在方块数变化时调用
+     */
+    private void drawBase() {
+        GraphicsContext gc = baseCanvas.getGraphicsContext2D();
+        double width = baseCanvas.getWidth(), height = baseCanvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        int states = pow3[disks];
+        if (disks <= MAX_DISKS_WITH_EDGES) {
+            gc.setStroke(Color.LIGHTGRAY);
+            gc.setLineWidth(1);
+            for (int state = 0; state < states; state++) {// 每条边只画一次：只连到编号更大的相邻局面
+                forEachNeighbor(state, (from, to) -> {
+                    if (to > from) {
+                        gc.strokeLine(toX(from), toY(from), toX(to), toY(to));
+                    }
+                });
+            }
+            gc.setFill(Color.GRAY);
+            double r = Math.max(1, Math.min(3, (width - PADDING * 2) / (1 << disks) / 4));
+            for (int state = 0; state < states; state++) {
+                gc.fillOval(toX(state) - r, toY(state) - r, r * 2, r * 2);
+            }
+            return;
+        }
+        // 局面太多时直接写像素，比逐个调用绘图命令快得多
+        int w = (int) width, h = (int) height;
+        int[] pixels = new int[w * h];
+        int gray = 0xFF808080;
+        for (int state = 0; state < states; state++) {
+            int px = (int) toX(state), py = (int) toY(state);
+            if (px >= 0 && px < w && py >= 0 && py < h) {
+                pixels[py * w + px] = gray;
+            }
+        }
+        WritableImage image = new WritableImage(w, h);
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), pixels, 0, w);
+        gc.drawImage(image, 0, 0);
+    }
+
+    private interface EdgeConsumer {
+        void accept(int from, int to);
+    }
+
+    /**
+     * 遍历一个局面能一步到达的局面
+     */
+    private void forEachNeighbor(int state, EdgeConsumer consumer) {
+        int[] top = {disks, disks, disks};
+        int remaining = state;
+        for (int d = 0; d < disks; d++) {
+            int peg = remaining % PEGS;
+            remaining /= PEGS;
+            if (top[peg] == disks) {
+                top[peg] = d;
+            }
+        }
+        for (int from = 0; from < PEGS; from++) {
+            for (int to = 0; to < PEGS; to++) {
+                if (from != to && top[from] < top[to]) {
+                    consumer.accept(state, state + (to - from) * pow3[top[from]]);
+                }
+            }
+        }
+    }
+
+    private void showState(int state) {
+        int[] swap = previousPath;
+        previousPath = path;
+        previousPathLength = pathLength;
+        path = swap;
+        computePath(state);
+
+        double left, top, right, bottom;
+        if (previousPathLength > 1 && previousPath[1] == state) {// 沿最优路径走了一步，只有第一段变了
+            left = Math.min(toX(previousPath[0]), toX(state));
+            right = Math.max(toX(previousPath[0]), toX(state));
+            top = Math.min(toY(previousPath[0]), toY(state));
+            bottom = Math.max(toY(previousPath[0]), toY(state));
+        } else {
+            left = top = Double.MAX_VALUE;
+            right = bottom = -Double.MAX_VALUE;
+            for (int i = 0; i < previousPathLength + pathLength; i++) {
+                int s = i < previousPathLength ? previousPath[i] : path[i - previousPathLength];
+                double x = toX(s), y = toY(s);
+                left = Math.min(left, x);
+                right = Math.max(right, x);
+                top = Math.min(top, y);
+                bottom = Math.max(bottom, y);
+            }
+        }
+        double margin = MARKER_RADIUS + 2;
+        redrawOverlay(left - margin, top - margin, right - left + margin * 2, bottom - top + margin * 2);
+    }
+
+    /**
+     * 清除并重画上层画布中的一块区域
+     */
+    private void redrawOverlay(double x, double y, double w, double h) {
+        GraphicsContext gc = overlayCanvas.getGraphicsContext2D();
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, w, h);
+        gc.clip();
+        gc.clearRect(x, y, w, h);
+
+        gc.setStroke(Color.ORANGE);
+        gc.setLineWidth(2);
+        gc.beginPath();
+        gc.moveTo(toX(path[0]), toY(path[0]));
+        for (int i = 1; i < pathLength; i++) {
+            gc.lineTo(toX(path[i]), toY(path[i]));
+        }
+        gc.stroke();
+
+        int goal = path[pathLength - 1];
+        gc.setFill(Color.GREEN);
+        gc.fillOval(toX(goal) - MARKER_RADIUS, toY(goal) - MARKER_RADIUS, MARKER_RADIUS * 2, MARKER_RADIUS * 2);
+        gc.setFill(Color.RED);
+        gc.fillOval(toX(path[0]) - MARKER_RADIUS, toY(path[0]) - MARKER_RADIUS, MARKER_RADIUS * 2, MARKER_RADIUS * 2);
+        gc.restore();
+    }
+
+    /**
+     * 计算从state到目标局面的最优路径，写入path
+     */
+    private void computePath(int state) {
+        int remaining = state;
+        for (int d = 0; d < disks; d++) {
+            pegs[d] = remaining % PEGS;
+            remaining /= PEGS;
+        }
+        pathState = state;
+        pathLength = 0;
+        path[pathLength++] = state;
+        moveTo(disks, PEGS - 1);
+    }
+
+    /**
+     * 把最小的k个方块移到target，最大的方块不在target时，先把更小的方块移到另一根柱子
+     */
+    private void moveTo(int k, int target) {
+        if (k == 0) {
+            return;
+        }
+        int d = k - 1;
+        if (pegs[d] != target) {
+            moveTo(d, PEGS - pegs[d] - target);
+            pathState += (target - pegs[d]) * pow3[d];
+            pegs[d] = target;
+            path[pathLength++] = pathState;
+        }
+        moveTo(d, target);
+    }
+}
@@ -2,6 +2,7 @@ package org.nbpeak.game.towerHanoi.event;
 
 import javafx.event.Event;
 import javafx.event.EventType;
+import org.nbpeak.game.towerHanoi.control.Stack;
 
 public class StackInEvent extends Event {
 
@@ -9,12 +10,26 @@ public class StackInEvent extends Event {
 
     private int stackSize;
 
+    /**
+     * 方块原来所在的堆栈
+     */
+    private Stack from;
+
     public StackInEvent(int stackSize) {
+        this(stackSize, null);
+    }
+
+    public StackInEvent(int stackSize, Stack from) {
         super(STACK_IN);
         this.stackSize = stackSize;
+        this.from = from;
     }
 
     public int getStackSize() {
         return stackSize;
     }
+
+    public Stack getFrom() {
+        return from;
+    }
 }
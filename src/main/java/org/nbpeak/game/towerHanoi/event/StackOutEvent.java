@@ -13,10 +13,20 @@ public class StackOutEvent extends Event {
 
     private Point2D point;
 
+    /**
+     * 方块出栈时左上角相对于场景的坐标
+     */
+    private Point2D blockPoint;
+
     public StackOutEvent(Block block, Point2D point) {
+        this(block, point, null);
+    }
+
+    public StackOutEvent(Block block, Point2D point, Point2D blockPoint) {
         super(STACK_OUT);
         this.block = block;
         this.point = point;
+        this.blockPoint = blockPoint;
     }
 
     public Point2D getPoint() {
@@ -26,4 +36,8 @@ public class StackOutEvent extends Event {
     public Block getBlock() {
         return block;
     }
+
+    public Point2D getBlockPoint() {
+        return blockPoint;
+    }
 }
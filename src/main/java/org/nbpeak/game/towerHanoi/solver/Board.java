@@ -0,0 +1,190 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+import java.util.Arrays;
+
+/**
+ * 用基本类型数组表示的汉诺塔局面，方块编号从1开始，编号越大方块越大
+ */
+public class Board {
+
+    private final int disks;
+
+    /**
+     * stacks[peg][i]：柱子上从下往上第i个方块的编号
+     */
+    private final int[][] stacks;
+
+    private final int[] heights;
+
+    private long moveCount;
+
+    /**
+     * 创建所有方块都在第一根柱子上的局面
+     * @param disks
+     * @param pegs
+     */
+    public Board(int disks, int pegs) {
+        if (disks < 0) {
+            throw new IllegalArgumentException("disks must not be negative: " + disks);
+        }
+        if (pegs < HanoiSolver.MIN_PEGS) {
+            throw new IllegalArgumentException("pegs must be at least " + HanoiSolver.MIN_PEGS + ": " + pegs);
+        }
+        this.disks = disks;
+        this.stacks = new int[pegs][disks];
+        this.heights = new int[pegs];
+        reset();
+    }
+
+    /**
+     * 所有方块回到第一根柱子
+     */
+    public void reset() {
+        Arrays.fill(heights, 0);
+        for (int i = 0; i < disks; i++) {
+            stacks[0][i] = disks - i;
+        }
+        heights[0] = disks;
+        moveCount = 0;
+    }
+
+    /**
+     * 清空所有柱子，之后用{@link #place(int, int)}摆出任意局面
+     */
+    public void clear() {
+        Arrays.fill(heights, 0);
+        moveCount = 0;
+    }
+
+    /**
+     * 把方块直接放到柱子顶上，不计步数
+     * @param peg
+     * @param disk 方块编号，必须比柱子顶上的方块小
+     */
+    public void place(int peg, int disk) {
+        if (disk < 1 || disk > disks) {
+            throw new IllegalArgumentException("disk must be between 1 and " + disks + ": " + disk);
+        }
+        int top = top(peg);
+        if (top != 0 && top < disk) {
+            throw new IllegalStateException("disk " + disk + " is larger than top disk " + top + " on peg " + peg);
+        }
+        stacks[peg][heights[peg]++] = disk;
+    }
+
+    /**
+     * 判断移动是否合法
+     * @param from
+     * @param to
+     * @return
+     */
+    public boolean canMove(int from, int to) {
+        if (from < 0 || from >= stacks.length || to < 0 || to >= stacks.length || from == to) {
+            return false;
+        }
+        int top = top(from);
+        if (top == 0) {
+            return false;
+        }
+        int target = top(to);
+        return target == 0 || target > top;
+    }
+
+    /**
+     * 移动一个方块，不合法时抛出{@link IllegalStateException}
+     * @param from
+     * @param to
+     */
+    public void move(int from, int to) {
+        if (!canMove(from, to)) {
+            throw new IllegalStateException("illegal move " + from + "->" + to + " at step " + moveCount);
+        }
+        stacks[to][heights[to]++] = stacks[from][--heights[from]];
+        moveCount++;
+    }
+
+    /**
+     * 把from顶上的n个方块整体移到to，顺序不变，不计步数。用于跳过求解过程中的一段移动
+     * @param n
+     * @param from
+     * @param to
+     */
+    public void moveTower(int n, int from, int to) {
+        if (n == 0) {
+            return;
+        }
+        if (from == to || n > heights[from]) {
+            throw new IllegalStateException("cannot move " + n + " disks " + from + "->" + to);
+        }
+        int bottom = stacks[from][heights[from] - n];
+        int target = top(to);
+        if (target != 0 && target < bottom) {
+            throw new IllegalStateException("disk " + bottom + " is larger than top disk " + target + " on peg " + to);
+        }
+        System.arraycopy(stacks[from], heights[from] - n, stacks[to], heights[to], n);
+        heights[from] -= n;
+        heights[to] += n;
+    }
+
+    /**
+     * 两个局面的每根柱子上的方块是否完全相同，不比较步数
+     * @param other
+     * @return
+     */
+    public boolean samePosition(Board other) {
+        if (other.disks != disks || other.stacks.length != stacks.length) {
+            return false;
+        }
+        for (int peg = 0; peg < stacks.length; peg++) {
+            if (heights[peg] != other.heights[peg]
+                    || !Arrays.equals(stacks[peg], 0, heights[peg], other.stacks[peg], 0, heights[peg])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 柱子最顶上的方块编号，柱子为空时返回0
+     * @param peg
+     * @return
+     */
+    public int top(int peg) {
+        int h = heights[peg];
+        return h == 0 ? 0 : stacks[peg][h - 1];
+    }
+
+    public int height(int peg) {
+        return heights[peg];
+    }
+
+    /**
+     * 柱子上从下往上第index个方块的编号
+     */
+    public int diskAt(int peg, int index) {
+        if (index < 0 || index >= heights[peg]) {
+            throw new IndexOutOfBoundsException("index " + index + " on peg " + peg);
+        }
+        return stacks[peg][index];
+    }
+
+    /**
+     * 所有方块都在最后一根柱子上
+     * @return
+     */
+    public boolean isSolved() {
+        return heights[stacks.length - 1] == disks;
+    }
+
+    public int getDisks() {
+        return disks;
+    }
+
+    public int getPegs() {
+        return stacks.length;
+    }
+
+    public long getMoveCount() {
+        return moveCount;
+    }
+}
@@ -0,0 +1,240 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+/**
+ * 汉诺塔求解器，不依赖JavaFx，可以在没有显示器的环境中使用。
+ * 三根柱子时是经典递归解法，四根及以上柱子使用Frame-Stewart算法。
+ * 所有方块从第一根柱子移动到最后一根柱子。实例创建后不可变，可以被多个线程共用。
+ */
+public class HanoiSolver {
+
+    public static final int MIN_PEGS = 3;
+
+    /**
+     * 步数用long表示，三根柱子时最多支持63个方块
+     */
+    public static final int MAX_DISKS = 63;
+
+    /**
+     * 柱子数超过方块数+1之后步数不会再减少，步数表按柱子数×方块数分配，限制柱子数避免内存耗尽
+     */
+    public static final int MAX_PEGS = 64;
+
+    private final int disks;
+
+    private final int pegs;
+
+    /**
+     * moves[p][n]：n个方块在p根柱子上的最少步数
+     */
+    private final long[][] moves;
+
+    /**
+     * split[p][n]：Frame-Stewart算法中先移到中间柱子上的方块数量
+     */
+    private final int[][] split;
+
+    public HanoiSolver(int disks, int pegs) {
+        if (disks < 0 || disks > MAX_DISKS) {
+            throw new IllegalArgumentException("disks must be between 0 and " + MAX_DISKS + ": " + disks);
+        }
+        if (pegs < MIN_PEGS || pegs > MAX_PEGS) {
+            throw new IllegalArgumentException("pegs must be between " + MIN_PEGS + " and " + MAX_PEGS + ": " + pegs);
+        }
+        this.disks = disks;
+        this.pegs = pegs;
+        this.moves = new long[pegs + 1][disks + 1];
+        this.split = new int[pegs + 1][disks + 1];
+        initTable();
+    }
+
+    private void initTable() {
+        for (int n = 1; n <= disks; n++) {
+            moves[MIN_PEGS][n] = (1L << n) - 1;
+        }
+        for (int p = MIN_PEGS + 1; p <= pegs; p++) {
+            for (int n = 1; n <= disks; n++) {
+                if (n == 1) {
+                    moves[p][n] = 1;
+                    continue;
+                }
+                long best = Long.MAX_VALUE;
+                int bestK = 1;
+                for (int k = 1; k < n; k++) {
+                    long m = saturatedAdd(saturatedAdd(moves[p][k], moves[p][k]), moves[p - 1][n - k]);
+                    if (m < best) {
+                        best = m;
+                        bestK = k;
+                    }
+                }
+                moves[p][n] = best;
+                split[p][n] = bestK;
+            }
+        }
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long r = a + b;
+        return r < 0 ? Long.MAX_VALUE : r;
+    }
+
+    /**
+     * 最少步数，溢出时返回{@link Long#MAX_VALUE}
+     * @return
+     */
+    public long optimalMoves() {
+        return moves[pegs][disks];
+    }
+
+    public int getDisks() {
+        return disks;
+    }
+
+    public int getPegs() {
+        return pegs;
+    }
+
+    /**
+     * 按顺序输出每一步移动
+     * @param consumer
+     */
+    public void solve(MoveConsumer consumer) {
+        if (disks == 0) {
+            return;
+        }
+        int[] spare = new int[pegs - 2];
+        for (int i = 0; i < spare.length; i++) {
+            spare[i] = i + 1;
+        }
+        move(disks, 0, pegs - 1, spare, spare.length, consumer);
+    }
+
+    /**
+     * 只输出第first步（从0开始）到第last步（不含）之间的移动，不同的区间互不依赖，可以在多个线程中分段求解。
+     * board不为null时，区间之前的移动按整段方块直接作用到board上，这样board就是第first步之前的局面，
+     * 区间内的移动由consumer处理（通常是board::move）；first等于last时只把board摆到第first步之前的局面。
+     * @param first
+     * @param last
+     * @param board 可以为null
+     * @param consumer first等于last时可以为null
+     */
+    public void solve(long first, long last, Board board, MoveConsumer consumer) {
+        if (disks == 0 || first > last || (first == last && board == null)) {
+            return;
+        }
+        int[] spare = new int[pegs - 2];
+        for (int i = 0; i < spare.length; i++) {
+            spare[i] = i + 1;
+        }
+        new Segment(first, last, board, consumer).move(disks, 0, pegs - 1, spare, spare.length, 0);
+    }
+
+    /**
+     * 借助spare中前spareCount根柱子，把from上面的n个方块移到to
+     */
+    private void move(int n, int from, int to, int[] spare, int spareCount, MoveConsumer consumer) {
+        if (spareCount == 1 || n <= 1) {
+            moveThree(n, from, to, spare[0], consumer);
+            return;
+        }
+        int k = split[spareCount + 2][n];
+        int middle = spare[spareCount - 1];
+        int[] next = new int[spareCount];
+        System.arraycopy(spare, 0, next, 0, spareCount - 1);
+
+        next[spareCount - 1] = to;
+        move(k, from, middle, next, spareCount, consumer);// 上面k个方块先移到中间柱子
+        move(n - k, from, to, spare, spareCount - 1, consumer);// 剩下的方块不能再用中间柱子
+        next[spareCount - 1] = from;
+        move(k, middle, to, next, spareCount, consumer);// k个方块移到目标柱子
+    }
+
+    private static void moveThree(int n, int from, int to, int via, MoveConsumer consumer) {
+        if (n == 0) {
+            return;
+        }
+        moveThree(n - 1, from, via, to, consumer);
+        consumer.accept(from, to);
+        moveThree(n - 1, via, to, from, consumer);
+    }
+
+    /**
+     * 分段求解，递归过程和{@link #move(int, int, int, int[], int, MoveConsumer)}相同，
+     * 每一层按步数表算出子问题的步数，整段在区间外的子问题直接跳过，整段在区间内的子问题不再检查区间。
+     */
+    private class Segment {
+        private final long first;
+        private final long last;
+        private final Board board;
+        private final MoveConsumer consumer;
+
+        Segment(long first, long last, Board board, MoveConsumer consumer) {
+            this.first = first;
+            this.last = last;
+            this.board = board;
+            this.consumer = consumer;
+        }
+
+        /**
+         * @param pos 这个子问题第一步的序号
+         * @return 这个子问题之后下一步的序号
+         */
+        long move(int n, int from, int to, int[] spare, int spareCount, long pos) {
+            if (spareCount == 1 || n <= 1) {
+                return moveThree(n, from, to, spare[0], pos);
+            }
+            long size = moves[spareCount + 2][n];
+            if (skipped(n, from, to, pos, size)) {
+                return pos + size;
+            }
+            if (pos >= first && pos + size <= last) {
+                HanoiSolver.this.move(n, from, to, spare, spareCount, consumer);
+                return pos + size;
+            }
+            int k = split[spareCount + 2][n];
+            int middle = spare[spareCount - 1];
+            int[] next = new int[spareCount];
+            System.arraycopy(spare, 0, next, 0, spareCount - 1);
+
+            next[spareCount - 1] = to;
+            pos = move(k, from, middle, next, spareCount, pos);
+            pos = move(n - k, from, to, spare, spareCount - 1, pos);
+            next[spareCount - 1] = from;
+            return move(k, middle, to, next, spareCount, pos);
+        }
+
+        long moveThree(int n, int from, int to, int via, long pos) {
+            if (n == 0) {
+                return pos;
+            }
+            long size = (1L << n) - 1;
+            if (skipped(n, from, to, pos, size)) {
+                return pos + size;
+            }
+            if (pos >= first && pos + size <= last) {
+                HanoiSolver.moveThree(n, from, to, via, consumer);
+                return pos + size;
+            }
+            pos = moveThree(n - 1, from, via, to, pos);
+            if (!skipped(1, from, to, pos, 1)) {
+                consumer.accept(from, to);
+            }
+            return moveThree(n - 1, via, to, from, pos + 1);
+        }
+
+        /**
+         * 子问题是否整段在区间外。在区间之前的子问题会整段作用到board上
+         */
+        private boolean skipped(int n, int from, int to, long pos, long size) {
+            if (pos >= last) {
+                return true;
+            }
+            if (pos + size <= first) {
+                if (board != null) {
+                    board.moveTower(n, from, to);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
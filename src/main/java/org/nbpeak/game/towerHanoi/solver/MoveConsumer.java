@@ -0,0 +1,14 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+/**
+ * 接收求解器产生的每一步移动
+ */
+@FunctionalInterface
+public interface MoveConsumer {
+
+    /**
+     * @param from 移出的柱子下标，从0开始
+     * @param to   移入的柱子下标，从0开始
+     */
+    void accept(int from, int to);
+}
@@ -0,0 +1,306 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 多柱汉诺塔残局库，由{@link TablebaseGenerator}生成，运行时以只读方式内存映射，查询不分配对象。
+ * <p>
+ * 局面编号：第i小的方块（从0开始）所在柱子是p进制的第i位，所有方块都在最后一根柱子上是目标局面。
+ * 每个局面用4位保存到目标局面的最少步数对{@link #MODULUS}取模的值。相邻局面的步数最多差1，
+ * 所以找取值为 (v - 1) mod 15 的相邻局面就是最优的一步，移动后剩余步数也可以由新旧取值在O(1)内算出。
+ * <p>
+ * 文件格式（小端）：
+ * <pre>
+ * magic    4字节 "HNTB"
+ * version  1字节
+ * bits     1字节，固定为4
+ * disks    1字节
+ * pegs     1字节
+ * states   8字节，局面总数
+ * data     每字节两个局面，偶数编号在低4位，长度补齐到4的倍数
+ * </pre>
+ */
+public class Tablebase {
+
+    public static final int HEADER_SIZE = 16;
+
+    public static final byte VERSION = 1;
+
+    public static final int MODULUS = 15;
+
+    /**
+     * 生成过程中表示还未访问的局面
+     */
+    static final int UNVISITED = 0xF;
+
+    /**
+     * 最多支持的柱子数，每根柱子的顶部方块用6位打包进一个long
+     */
+    public static final int MAX_PEGS = 10;
+
+    /**
+     * 每段映射的字节数，单个{@link MappedByteBuffer}不能超过2GB
+     */
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    static final byte[] MAGIC = "HNTB".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int TOP_BITS = 6;
+
+    private static final long TOP_MASK = (1L << TOP_BITS) - 1;
+
+    private final int disks;
+
+    private final int pegs;
+
+    private final long states;
+
+    private final long goal;
+
+    /**
+     * pow[i] = pegs^i
+     */
+    private final long[] pow;
+
+    private final ByteBuffer[] segments;
+
+    private Tablebase(int disks, int pegs, long states, ByteBuffer[] segments) {
+        this.disks = disks;
+        this.pegs = pegs;
+        this.states = states;
+        this.pow = powers(disks, pegs);
+        this.goal = goalState(pow);
+        this.segments = segments;
+    }
+
+    /**
+     * 内存映射残局库文件
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            if (header.remaining() < HEADER_SIZE) {
+                throw new IOException("not a tablebase file: " + file);
+            }
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || header.get() != VERSION || header.get() != 4) {
+                throw new IOException("not a tablebase file: " + file);
+            }
+            int disks = header.get();
+            int pegs = header.get();
+            long states = header.getLong();
+            if (pegs < HanoiSolver.MIN_PEGS || pegs > MAX_PEGS || states != stateCount(disks, pegs)) {
+                throw new IOException("corrupt tablebase header: " + file);
+            }
+            long dataSize = dataSize(states);
+            if (channel.size() < HEADER_SIZE + dataSize) {
+                throw new IOException("truncated tablebase file: " + file);
+            }
+            return new Tablebase(disks, pegs, states, map(channel, FileChannel.MapMode.READ_ONLY, dataSize));
+        }
+    }
+
+    static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long dataSize) throws IOException {
+        int count = (int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        ByteBuffer[] segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long offset = i * SEGMENT_SIZE;
+            long size = Math.min(SEGMENT_SIZE, dataSize - offset);
+            segments[i] = channel.map(mode, HEADER_SIZE + offset, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    static long stateCount(int disks, int pegs) {
+        long count = 1;
+        for (int i = 0; i < disks; i++) {
+            count = Math.multiplyExact(count, pegs);
+        }
+        return count;
+    }
+
+    static long dataSize(long states) {
+        return ((states + 1) / 2 + 3) & ~3L;
+    }
+
+    static long[] powers(int disks, int pegs) {
+        long[] pow = new long[disks + 1];
+        pow[0] = 1;
+        for (int i = 1; i <= disks; i++) {
+            pow[i] = pow[i - 1] * pegs;
+        }
+        return pow;
+    }
+
+    /**
+     * 每一位都是 pegs - 1
+     */
+    static long goalState(long[] pow) {
+        return pow[pow.length - 1] - 1;
+    }
+
+    /**
+     * 把局面各柱子的顶部方块打包成long，每根柱子6位，空柱子为disks
+     */
+    static long tops(long state, int disks, int pegs, long[] pow) {
+        long tops = 0;
+        for (int p = 0; p < pegs; p++) {
+            tops |= (long) disks << (p * TOP_BITS);
+        }
+        long remaining = state;
+        for (int i = 0; i < disks; i++) {
+            int peg = (int) (remaining % pegs);
+            remaining /= pegs;
+            int shift = peg * TOP_BITS;
+            if (((tops >>> shift) & TOP_MASK) == disks) {
+                tops = (tops & ~(TOP_MASK << shift)) | ((long) i << shift);
+            }
+        }
+        return tops;
+    }
+
+    static int top(long tops, int peg) {
+        return (int) ((tops >>> (peg * TOP_BITS)) & TOP_MASK);
+    }
+
+    /**
+     * 局面到目标局面的最少步数对{@link #MODULUS}取模的值
+     * @param state
+     * @return
+     */
+    public int value(long state) {
+        if (state < 0 || state >= states) {
+            throw new IndexOutOfBoundsException("state " + state);
+        }
+        long offset = state >>> 1;
+        int b = segments[(int) (offset / SEGMENT_SIZE)].get((int) (offset % SEGMENT_SIZE));
+        return (state & 1) == 0 ? b & 0xF : (b >>> 4) & 0xF;
+    }
+
+    /**
+     * 计算局面编号
+     * @param board 方块数和柱子数必须和残局库一致
+     * @return
+     */
+    public long encode(Board board) {
+        if (board.getDisks() != disks || board.getPegs() != pegs) {
+            throw new IllegalArgumentException("board is " + board.getDisks() + " disks on " + board.getPegs()
+                    + " pegs, tablebase is " + disks + " disks on " + pegs + " pegs");
+        }
+        long state = 0;
+        for (int peg = 0; peg < pegs; peg++) {
+            for (int i = 0, h = board.height(peg); i < h; i++) {
+                state += peg * pow[board.diskAt(peg, i) - 1];
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 最优的一步，编码为 from * 256 + to，已经到达目标局面时返回-1
+     * @param board
+     * @return
+     */
+    public int bestMove(Board board) {
+        return bestMove(encode(board));
+    }
+
+    public int bestMove(long state) {
+        if (state == goal) {
+            return -1;
+        }
+        int want = (value(state) + MODULUS - 1) % MODULUS;
+        long tops = tops(state, disks, pegs, pow);
+        for (int from = 0; from < pegs; from++) {
+            int disk = top(tops, from);
+            if (disk == disks) {
+                continue;
+            }
+            for (int to = 0; to < pegs; to++) {
+                if (to == from || top(tops, to) < disk) {
+                    continue;
+                }
+                if (value(state + (to - from) * pow[disk]) == want) {
+                    return from << 8 | to;
+                }
+            }
+        }
+        throw new IllegalStateException("no improving move from state " + state + ", tablebase is corrupt");
+    }
+
+    public static int moveFrom(int move) {
+        return move >>> 8;
+    }
+
+    public static int moveTo(int move) {
+        return move & 0xFF;
+    }
+
+    /**
+     * 局面到目标局面的最少步数。需要沿最优路径走到目标，只在开局时调用一次，之后用{@link #remainingAfterMove}更新
+     * @param board
+     * @return
+     */
+    public long movesRemaining(Board board) {
+        long state = encode(board);
+        long count = 0;
+        while (state != goal) {
+            int move = bestMove(state);
+            int from = moveFrom(move);
+            int to = moveTo(move);
+            state += (to - from) * pow[top(tops(state, disks, pegs, pow), from)];
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 走一步后的剩余步数
+     * @param remaining 走之前的剩余步数
+     * @param before    走之前局面的{@link #value}
+     * @param after     走之后局面的{@link #value}
+     * @return
+     */
+    public static long remainingAfterMove(long remaining, int before, int after) {
+        int delta = (after - before + MODULUS) % MODULUS;
+        if (delta == 1) {
+            return remaining + 1;
+        }
+        if (delta == MODULUS - 1) {
+            return remaining - 1;
+        }
+        return remaining;
+    }
+
+    public int getDisks() {
+        return disks;
+    }
+
+    public int getPegs() {
+        return pegs;
+    }
+
+    public long getStates() {
+        return states;
+    }
+
+    public long getGoal() {
+        return goal;
+    }
+}
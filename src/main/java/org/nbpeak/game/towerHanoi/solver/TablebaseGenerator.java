@@ -0,0 +1,254 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * 生成{@link Tablebase}文件。从目标局面开始逐层广度优先搜索，用两个位图保存当前层和下一层的局面，
+ * 每层只展开当前层的局面，不用每层重新扫描所有局面。位图按块分成并行任务，没有当前层局面的块直接跳过；
+ * 新局面通过对所在int做CAS写入取值，再对位图所在long做原子或，不需要加锁。
+ * <p>
+ * 位图放在输出文件旁边的临时文件中内存映射，两个位图一共是残局库数据的一半大小，生成结束后删除。
+ */
+public class TablebaseGenerator {
+
+    /**
+     * 每个并行任务负责的局面数，是64的倍数
+     */
+    private static final long CHUNK_STATES = 1L << 20;
+
+    /**
+     * 最多支持的局面数，对应的残局库文件约512GB
+     */
+    public static final long MAX_STATES = 1L << 40;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int disks;
+
+    private final int pegs;
+
+    private final long states;
+
+    private final long[] pow;
+
+    private ByteBuffer[] segments;
+
+    public TablebaseGenerator(int disks, int pegs) {
+        if (pegs < HanoiSolver.MIN_PEGS || pegs > Tablebase.MAX_PEGS) {
+            throw new IllegalArgumentException("pegs must be between " + HanoiSolver.MIN_PEGS + " and " + Tablebase.MAX_PEGS + ": " + pegs);
+        }
+        if (disks < 0 || disks > HanoiSolver.MAX_DISKS) {
+            throw new IllegalArgumentException("disks must be between 0 and " + HanoiSolver.MAX_DISKS + ": " + disks);
+        }
+        long count;
+        try {
+            count = Tablebase.stateCount(disks, pegs);
+        } catch (ArithmeticException e) {
+            count = Long.MAX_VALUE;
+        }
+        if (count > MAX_STATES) {
+            throw new IllegalArgumentException(disks + " disks on " + pegs + " pegs is more than " + MAX_STATES
+                    + " states (" + (MAX_STATES >>> 31) + " GB)");
+        }
+        this.disks = disks;
+        this.pegs = pegs;
+        this.states = count;
+        this.pow = Tablebase.powers(disks, pegs);
+    }
+
+    /**
+     * 生成的残局库文件的字节数
+     * @return
+     */
+    public long fileSize() {
+        return Tablebase.HEADER_SIZE + Tablebase.dataSize(states);
+    }
+
+    /**
+     * 生成过程中临时文件的字节数
+     * @return
+     */
+    public long tempFileSize() {
+        return 2 * bitmapSize();
+    }
+
+    private long bitmapSize() {
+        return ((states + 63) >>> 6) * Long.BYTES;
+    }
+
+    /**
+     * 生成残局库文件
+     * @param file
+     * @return 离目标局面最远的局面的步数
+     * @throws IOException
+     */
+    public int generate(Path file) throws IOException {
+        long dataSize = Tablebase.dataSize(states);
+        Path dir = file.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), ".bfs");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(Tablebase.MAGIC).put(Tablebase.VERSION).put((byte) 4).put((byte) disks).put((byte) pegs).putLong(states);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            segments = Tablebase.map(channel, FileChannel.MapMode.READ_WRITE, dataSize);
+            for (ByteBuffer segment : segments) {// 全部标记为未访问
+                int i = 0;
+                for (; i + Long.BYTES <= segment.capacity(); i += Long.BYTES) {
+                    segment.putLong(i, -1L);
+                }
+                for (; i < segment.capacity(); i += Integer.BYTES) {// 长度是4的倍数
+                    segment.putInt(i, -1);
+                }
+            }
+            // 新扩展的文件内容全是0，两个位图开始都是空的
+            Bitmap frontier = new Bitmap(temp, 0, bitmapSize());
+            Bitmap following = new Bitmap(temp, bitmapSize(), bitmapSize());
+
+            int chunks = (int) ((states + CHUNK_STATES - 1) / CHUNK_STATES);
+            boolean[] active = new boolean[chunks];
+            long goal = Tablebase.goalState(pow);
+            set(goal, 0);
+            frontier.set(goal);
+            active[(int) (goal / CHUNK_STATES)] = true;
+
+            int level = 0;
+            LongAdder added = new LongAdder();
+            while (true) {
+                int next = (level + 1) % Tablebase.MODULUS;
+                boolean[] nextActive = new boolean[chunks];
+                Bitmap current = frontier;
+                Bitmap target = following;
+                added.reset();
+                boolean[] scan = active;
+                IntStream.range(0, chunks).parallel().filter(chunk -> scan[chunk])
+                        .forEach(chunk -> expand(chunk, current, target, nextActive, next, added));
+                if (added.sum() == 0) {
+                    break;
+                }
+                frontier = target;// 展开时已经清空了当前层的位图，交换后作为下一层的位图
+                following = current;
+                active = nextActive;
+                level++;
+            }
+            for (ByteBuffer segment : segments) {
+                ((MappedByteBuffer) segment).force();
+            }
+            return level;
+        } finally {
+            segments = null;
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 展开一块中属于当前层的局面，边读边清空当前层的位图
+     */
+    private void expand(int chunk, Bitmap current, Bitmap target, boolean[] nextActive, int next, LongAdder added) {
+        long firstWord = chunk * (CHUNK_STATES >>> 6);
+        long endWord = Math.min((states + 63) >>> 6, firstWord + (CHUNK_STATES >>> 6));
+        long count = 0;
+        for (long word = firstWord; word < endWord; word++) {
+            long bits = current.take(word);
+            while (bits != 0) {
+                long state = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long tops = Tablebase.tops(state, disks, pegs, pow);
+                for (int from = 0; from < pegs; from++) {
+                    int disk = Tablebase.top(tops, from);
+                    if (disk == disks) {
+                        continue;
+                    }
+                    for (int to = 0; to < pegs; to++) {
+                        if (to == from || Tablebase.top(tops, to) < disk) {
+                            continue;
+                        }
+                        long neighbor = state + (to - from) * pow[disk];
+                        if (set(neighbor, next)) {
+                            target.set(neighbor);
+                            nextActive[(int) (neighbor / CHUNK_STATES)] = true;
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        added.add(count);
+    }
+
+    /**
+     * 局面未访问时写入取值
+     * @return 是否写入
+     */
+    private boolean set(long state, int value) {
+        long offset = state >>> 1;
+        ByteBuffer segment = segments[(int) (offset / Tablebase.SEGMENT_SIZE)];
+        int index = (int) (offset % Tablebase.SEGMENT_SIZE) & ~3;
+        int shift = (int) (state & 7) * 4;
+        while (true) {
+            int word = (int) INT.getVolatile(segment, index);
+            if (((word >>> shift) & 0xF) != Tablebase.UNVISITED) {
+                return false;
+            }
+            int updated = (word & ~(0xF << shift)) | (value << shift);
+            if (INT.compareAndSet(segment, index, word, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 内存映射的位图，每个局面一位
+     */
+    private static class Bitmap {
+        private final ByteBuffer[] segments;
+
+        Bitmap(FileChannel channel, long offset, long size) throws IOException {
+            int count = (int) ((size + Tablebase.SEGMENT_SIZE - 1) / Tablebase.SEGMENT_SIZE);
+            segments = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * Tablebase.SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset + start,
+                        Math.min(Tablebase.SEGMENT_SIZE, size - start)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        void set(long bit) {
+            long offset = (bit >>> 6) * Long.BYTES;
+            ByteBuffer segment = segments[(int) (offset / Tablebase.SEGMENT_SIZE)];
+            LONG.getAndBitwiseOr(segment, (int) (offset % Tablebase.SEGMENT_SIZE), 1L << (bit & 63));
+        }
+
+        /**
+         * 读出一个long并清零，只在没有其他线程写这个位图时调用
+         */
+        long take(long word) {
+            long offset = word * Long.BYTES;
+            ByteBuffer segment = segments[(int) (offset / Tablebase.SEGMENT_SIZE)];
+            int index = (int) (offset % Tablebase.SEGMENT_SIZE);
+            long bits = segment.getLong(index);
+            if (bits != 0) {
+                segment.putLong(index, 0);
+            }
+            return bits;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.nbpeak.game.towerHanoi.state;
+
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+/**
+ * 不可变的对局快照。每个方块所在的柱子按位打包进一个long，第i位组（从0开始）对应编号i+1的方块，
+ * 所以一次发布只分配这一个对象，任何线程拿到引用后读到的都是同一个一致的局面。
+ */
+public final class GameSnapshot {
+
+    public static final GameSnapshot EMPTY = new GameSnapshot(0, 3, 0L, 0, 0, 0, 0);
+
+    private final int disks;
+
+    private final int pegs;
+
+    private final long positions;
+
+    private final int steps;
+
+    private final long elapsedMillis;
+
+    private final int status;
+
+    /**
+     * 每次发布加1，用来判断局面有没有变化
+     */
+    private final long version;
+
+    private GameSnapshot(int disks, int pegs, long positions, int steps, long elapsedMillis, int status, long version) {
+        this.disks = disks;
+        this.pegs = pegs;
+        this.positions = positions;
+        this.steps = steps;
+        this.elapsedMillis = elapsedMillis;
+        this.status = status;
+        this.version = version;
+    }
+
+    /**
+     * 从局面创建快照
+     * @param board
+     * @param steps
+     * @param elapsedMillis
+     * @param status
+     * @param version
+     * @return
+     */
+    public static GameSnapshot of(Board board, int steps, long elapsedMillis, int status, long version) {
+        int bits = bitsPerDisk(board.getPegs());
+        if (board.getDisks() * bits > Long.SIZE) {
+            throw new IllegalArgumentException(board.getDisks() + " disks on " + board.getPegs() + " pegs do not fit in a snapshot");
+        }
+        long positions = 0;
+        for (int peg = 0; peg < board.getPegs(); peg++) {
+            for (int i = 0; i < board.height(peg); i++) {
+                positions |= (long) peg << ((board.diskAt(peg, i) - 1) * bits);
+            }
+        }
+        return new GameSnapshot(board.getDisks(), board.getPegs(), positions, steps, elapsedMillis, status, version);
+    }
+
+    private static int bitsPerDisk(int pegs) {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(pegs - 1));
+    }
+
+    /**
+     * 移动一个方块后的新快照，不合法时抛出{@link IllegalStateException}，和{@link Board#move}一致
+     * @param from
+     * @param to
+     * @param steps 移动后的步数
+     * @param elapsedMillis 移动时的计时
+     * @return
+     */
+    public GameSnapshot withMove(int from, int to, int steps, long elapsedMillis) {
+        if (from < 0 || from >= pegs || to < 0 || to >= pegs || from == to) {
+            throw new IllegalStateException("illegal move " + from + "->" + to + " on " + pegs + " pegs");
+        }
+        int disk = top(from);
+        if (disk == 0) {
+            throw new IllegalStateException("peg " + from + " is empty");
+        }
+        int target = top(to);
+        if (target != 0 && target < disk) {
+            throw new IllegalStateException("disk " + disk + " is larger than top disk " + target + " on peg " + to);
+        }
+        int bits = bitsPerDisk(pegs);
+        int shift = (disk - 1) * bits;
+        long mask = ((1L << bits) - 1) << shift;
+        long moved = (positions & ~mask) | ((long) to << shift);
+        return new GameSnapshot(disks, pegs, moved, steps, elapsedMillis, status, version + 1);
+    }
+
+    /**
+     * 方块所在的柱子
+     * @param disk 方块编号，从1开始
+     * @return
+     */
+    public int pegOf(int disk) {
+        if (disk < 1 || disk > disks) {
+            throw new IllegalArgumentException("disk must be between 1 and " + disks + ": " + disk);
+        }
+        int bits = bitsPerDisk(pegs);
+        return (int) ((positions >>> ((disk - 1) * bits)) & ((1L << bits) - 1));
+    }
+
+    /**
+     * 柱子最顶上的方块编号，柱子为空时返回0
+     * @param peg
+     * @return
+     */
+    public int top(int peg) {
+        for (int disk = 1; disk <= disks; disk++) {
+            if (pegOf(disk) == peg) {
+                return disk;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 展开成可修改的局面
+     * @param board 方块数和柱子数一致时复用，可以为null
+     * @return
+     */
+    public Board toBoard(Board board) {
+        if (board == null || board.getDisks() != disks || board.getPegs() != pegs) {
+            board = new Board(disks, pegs);
+        }
+        board.clear();
+        for (int disk = disks; disk >= 1; disk--) {// 从大到小放入
+            board.place(pegOf(disk), disk);
+        }
+        return board;
+    }
+
+    public int getDisks() {
+        return disks;
+    }
+
+    public int getPegs() {
+        return pegs;
+    }
+
+    /**
+     * 打包后的方块位置
+     * @return
+     */
+    public long getPositions() {
+        return positions;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * 发布快照时的计时，实时计时见{@link GameStatePublisher#getElapsedMillis()}
+     * @return
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,49 @@
+package org.nbpeak.game.towerHanoi.state;
+
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+/**
+ * 发布对局状态给后台线程（机器人、统计、观众等）读取。
+ * 只有JavaFx线程写入，每次写入替换一个volatile引用指向新的{@link GameSnapshot}，读取方不加锁、不阻塞，
+ * 也不需要{@code Platform.runLater}。计时每毫秒都在变，单独放在一个volatile long里，不为它创建快照。
+ */
+public class GameStatePublisher {
+
+    private volatile GameSnapshot snapshot = GameSnapshot.EMPTY;
+
+    private volatile long elapsedMillis;
+
+    /**
+     * 当前快照，任意线程可调用
+     * @return
+     */
+    public GameSnapshot get() {
+        return snapshot;
+    }
+
+    /**
+     * 实时计时，任意线程可调用
+     * @return
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 发布完整局面，用于开局、重来等局面整体变化的时候
+     */
+    public void publish(Board board, int steps, int status) {
+        snapshot = GameSnapshot.of(board, steps, elapsedMillis, status, snapshot.getVersion() + 1);
+    }
+
+    /**
+     * 发布一步移动
+     */
+    public void publishMove(int from, int to, int steps) {
+        snapshot = snapshot.withMove(from, to, steps, elapsedMillis);
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,93 @@
+package org.nbpeak.game.towerHanoi.broadcast;
+
+import org.junit.jupiter.api.Test;
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FramesTest {
+
+    @Test
+    void snapshotRoundTrip() {
+        Board board = new Board(5, 4);
+        board.move(0, 1);
+        board.move(0, 3);
+        board.move(1, 3);
+        byte[] frame = Frames.snapshot(board, 3, 12345L, 1);
+
+        Frames.State state = new Frames.State();
+        ByteBuffer buffer = body(frame);
+        state.apply(buffer);
+        assertEquals(0, buffer.remaining());
+        assertTrue(state.getBoard().samePosition(board));
+        assertEquals(3, state.getSteps());
+        assertEquals(12345L, state.getElapsedMillis());
+        assertEquals(1, state.getStatus());
+        assertArrayEquals(frame, state.snapshot());
+    }
+
+    @Test
+    void moveAndTimeRoundTrip() {
+        Frames.State state = new Frames.State();
+        state.apply(body(Frames.snapshot(new Board(3, 3), 0, 0, 0)));
+
+        ByteBuffer move = body(Frames.move(0, 2, 1));
+        state.apply(move);
+        assertEquals(0, move.remaining());
+        assertEquals(1, state.getSteps());
+        assertEquals(1, state.getBoard().top(2));
+        assertEquals(2, state.getBoard().top(0));
+
+        state.apply(body(Frames.move(0, 2, 2)));// 2号不能压在1号上，只更新步数
+        assertEquals(2, state.getSteps());
+        assertEquals(1, state.getBoard().top(2));
+
+        ByteBuffer time = body(Frames.time(Long.MAX_VALUE));
+        state.apply(time);
+        assertEquals(0, time.remaining());
+        assertEquals(Long.MAX_VALUE, state.getElapsedMillis());
+        assertEquals(1, state.getBoard().top(2));
+    }
+
+    @Test
+    void lengthPrefixCoversBody() {
+        for (byte[] frame : new byte[][]{Frames.snapshot(new Board(10, 6), 0, 0, 0), Frames.move(1, 2, 3), Frames.time(4)}) {
+            assertEquals(frame.length - Frames.LENGTH_SIZE, ByteBuffer.wrap(frame).getShort());
+        }
+    }
+
+    @Test
+    void truncatedFrameThrows() {
+        Frames.State state = new Frames.State();
+        byte[] snapshot = Frames.snapshot(new Board(4, 3), 0, 0, 0);
+        assertThrows(BufferUnderflowException.class,
+                () -> state.apply(ByteBuffer.wrap(Arrays.copyOfRange(snapshot, Frames.LENGTH_SIZE, snapshot.length - 1))));
+        byte[] move = Frames.move(0, 1, 1);
+        assertThrows(BufferUnderflowException.class,
+                () -> state.apply(ByteBuffer.wrap(Arrays.copyOfRange(move, Frames.LENGTH_SIZE, move.length - 2))));
+        byte[] time = Frames.time(1);
+        assertThrows(BufferUnderflowException.class,
+                () -> state.apply(ByteBuffer.wrap(Arrays.copyOfRange(time, Frames.LENGTH_SIZE, time.length - 1))));
+    }
+
+    @Test
+    void unknownTypeThrows() {
+        Frames.State state = new Frames.State();
+        assertThrows(IllegalArgumentException.class, () -> state.apply(ByteBuffer.wrap(new byte[]{0})));
+        assertThrows(IllegalArgumentException.class, () -> state.apply(ByteBuffer.wrap(new byte[]{42, 0, 0})));
+    }
+
+    /**
+     * 去掉长度前缀，和{@link SpectatorClient}交给{@link Frames.State#apply}的内容一致
+     */
+    private static ByteBuffer body(byte[] frame) {
+        return ByteBuffer.wrap(frame, Frames.LENGTH_SIZE, frame.length - Frames.LENGTH_SIZE).slice();
+    }
+}
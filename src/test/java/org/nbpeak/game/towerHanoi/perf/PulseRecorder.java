@@ -0,0 +1,139 @@
+package org.nbpeak.game.towerHanoi.perf;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 记录一个场景中每个脉冲的耗时（纳秒）和JavaFx线程的内存分配
+ */
+class PulseRecorder {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final String name;
+
+    private long[] action = new long[256];
+    private long[] css = new long[256];
+    private long[] layout = new long[256];
+    private long[] pulse = new long[256];
+    private int pulses;
+
+    private long startAllocated;
+    private long allocated;
+    private long startNanos;
+    private long elapsedNanos;
+    private boolean completed;
+
+    private final List<String> failures = new ArrayList<>();
+
+    PulseRecorder(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 在JavaFx线程上调用
+     */
+    void begin() {
+        startNanos = System.nanoTime();
+        startAllocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 在JavaFx线程上调用
+     */
+    void end(boolean completed) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - startAllocated;
+        this.completed = completed;
+    }
+
+    /**
+     * @param actionNanos 脚本和游戏在布局之前处理事件的耗时
+     * @param cssNanos
+     * @param layoutNanos
+     * @param pulseNanos  从动画阶段开始到布局之后的监听结束
+     */
+    void record(long actionNanos, long cssNanos, long layoutNanos, long pulseNanos) {
+        if (pulses == action.length) {
+            action = Arrays.copyOf(action, pulses * 2);
+            css = Arrays.copyOf(css, pulses * 2);
+            layout = Arrays.copyOf(layout, pulses * 2);
+            pulse = Arrays.copyOf(pulse, pulses * 2);
+        }
+        action[pulses] = actionNanos;
+        css[pulses] = cssNanos;
+        layout[pulses] = layoutNanos;
+        pulse[pulses] = pulseNanos;
+        pulses++;
+    }
+
+    /**
+     * 汇总后的指标，和阈值文件中的名字一一对应
+     */
+    Map<String, Double> metrics() {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        putPercentiles(metrics, "action", action);
+        putPercentiles(metrics, "css", css);
+        putPercentiles(metrics, "layout", layout);
+        putPercentiles(metrics, "pulse", pulse);
+        metrics.put("allocBytesPerPulse", pulses == 0 ? 0 : (double) allocated / pulses);
+        metrics.put("allocMBPerSecond", elapsedNanos == 0 ? 0 : allocated / (elapsedNanos / 1e9) / (1 << 20));
+        return metrics;
+    }
+
+    private void putPercentiles(Map<String, Double> metrics, String prefix, long[] values) {
+        long[] sorted = Arrays.copyOf(values, pulses);
+        Arrays.sort(sorted);
+        metrics.put(prefix + "P50Micros", percentile(sorted, 0.50) / 1e3);
+        metrics.put(prefix + "P95Micros", percentile(sorted, 0.95) / 1e3);
+        metrics.put(prefix + "MaxMicros", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e3);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    int getPulses() {
+        return pulses;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    void fail(String message) {
+        failures.add(message);
+    }
+
+    List<String> getFailures() {
+        return failures;
+    }
+
+    String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"name\":\"").append(name).append("\",\"pulses\":").append(pulses)
+                .append(",\"completed\":").append(completed)
+                .append(",\"elapsedNanos\":").append(elapsedNanos)
+                .append(",\"allocatedBytes\":").append(allocated);
+        metrics().forEach((key, value) -> sb.append(",\"").append(key).append("\":")
+                .append(String.format(Locale.ROOT, "%.1f", value)));
+        sb.append(",\"failures\":[");
+        for (int i = 0; i < failures.size(); i++) {
+            sb.append(i == 0 ? "" : ",").append('"').append(failures.get(i).replace("\"", "\\\"")).append('"');
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,439 @@
+package org.nbpeak.game.towerHanoi.perf;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Slider;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Stage;
+import org.nbpeak.game.towerHanoi.GameMain;
+import org.nbpeak.game.towerHanoi.control.Block;
+import org.nbpeak.game.towerHanoi.control.Stack;
+import org.nbpeak.game.towerHanoi.solver.HanoiSolver;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 界面性能测试。在无界面的Monocle平台上启动{@link GameMain}，按脚本拖动方块、用键盘走子、调整方块数量，
+ * 每个脉冲执行一步脚本，分别记录脚本和游戏处理事件、CSS、布局以及整个脉冲的耗时和JavaFx线程的内存分配，输出JSON，
+ * 场景没有完成时以非0状态退出。通过 {@code mvn -Pui-perf verify} 运行。
+ * <p>
+ * 阈值文件格式为 {@code 场景名.指标名=上限}，指标名见输出的JSON，超过上限时以非0状态退出，没有写上限的指标只记录不检查。
+ * 加上 {@code --calibrate FILE} 时，所有场景都完成后把本次实测的P95耗时和每脉冲分配量乘以{@link #HEADROOM}写成阈值文件，
+ * 检查没问题后复制到 {@code perf/ui-perf-thresholds.properties}。
+ */
+public class UiPerfSuite {
+
+    private static final String USAGE = "Usage: UiPerfSuite [--thresholds FILE] [--calibrate FILE] [--output FILE]";
+
+    /**
+     * 校准阈值时在实测值上留的余量
+     */
+    private static final double HEADROOM = 1.5;
+
+    /**
+     * 单个场景最长运行时间
+     */
+    private static final long SCENARIO_TIMEOUT_SECONDS = 120;
+
+    private static final int[] DISK_COUNTS = {3, 6, 10};
+
+    public static void main(String[] args) throws Exception {
+        Path thresholdsFile = null;
+        Path output = null;
+        Path calibrateFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            switch (args[i]) {
+                case "--thresholds":
+                    thresholdsFile = Paths.get(args[++i]);
+                    break;
+                case "--output":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "--calibrate":
+                    calibrateFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+        Properties thresholds = new Properties();
+        if (thresholdsFile != null) {
+            try (InputStream in = Files.newInputStream(thresholdsFile)) {
+                thresholds.load(in);
+            }
+        }
+        if (thresholds.isEmpty()) {
+            System.err.println("[ui-perf] no thresholds configured, measuring only");
+        }
+
+        Platform.setImplicitExit(false);
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+
+        List<PulseRecorder> results = new ArrayList<>();
+        for (int disks : DISK_COUNTS) {
+            results.add(run("drag-" + disks, disks, UiPerfSuite::dragSolution));
+        }
+        for (int disks : DISK_COUNTS) {
+            results.add(run("keyboard-" + disks, disks, UiPerfSuite::keyboardSolution));
+        }
+        results.add(run("slider", Block.MAX_BLOCK_SIZE, UiPerfSuite::sliderSweep));
+        Platform.exit();
+
+        boolean failed = false;
+        for (PulseRecorder result : results) {
+            if (!result.isCompleted()) {
+                result.fail("scenario did not complete");
+            }
+            for (String violation : check(result, thresholds)) {
+                result.fail(violation);
+            }
+            for (String failure : result.getFailures()) {
+                System.err.println("[ui-perf] " + result.getName() + ": " + failure);
+                failed = true;
+            }
+        }
+        String json = toJson(results);
+        if (output == null) {
+            System.out.println(json);
+        } else {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            Files.write(output, json.getBytes(StandardCharsets.UTF_8));
+        }
+        if (calibrateFile != null) {
+            if (results.stream().allMatch(PulseRecorder::isCompleted)) {
+                Files.createDirectories(calibrateFile.toAbsolutePath().getParent());
+                Files.write(calibrateFile, calibrate(results).getBytes(StandardCharsets.UTF_8));
+            } else {
+                System.err.println("[ui-perf] not all scenarios completed, " + calibrateFile + " not written");
+            }
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static String toJson(List<PulseRecorder> results) {
+        StringBuilder sb = new StringBuilder("{\"scenarios\":[\n");
+        for (int i = 0; i < results.size(); i++) {
+            sb.append("  ").append(results.get(i).toJson()).append(i == results.size() - 1 ? "\n" : ",\n");
+        }
+        return sb.append("]}\n").toString();
+    }
+
+    /**
+     * 按实测值生成阈值文件内容，只包含P95耗时和每脉冲分配量，最大值和P50波动太大不适合做上限
+     */
+    private static String calibrate(List<PulseRecorder> results) {
+        StringBuilder sb = new StringBuilder("# 由 UiPerfSuite --calibrate 按实测值乘以").append(HEADROOM).append("生成\n");
+        for (PulseRecorder result : results) {
+            result.metrics().forEach((metric, value) -> {
+                if (metric.endsWith("P95Micros") || metric.equals("allocBytesPerPulse")) {
+                    sb.append(result.getName()).append('.').append(metric).append('=')
+                            .append((long) Math.ceil(value * HEADROOM)).append('\n');
+                }
+            });
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return 超过阈值的指标
+     */
+    private static List<String> check(PulseRecorder result, Properties thresholds) {
+        List<String> violations = new ArrayList<>();
+        String prefix = result.getName() + ".";
+        result.metrics().forEach((metric, value) -> {
+            String limit = thresholds.getProperty(prefix + metric);
+            if (limit != null && value > Double.parseDouble(limit)) {
+                violations.add(metric + " = " + value + " exceeds " + limit);
+            }
+        });
+        return violations;
+    }
+
+    /**
+     * 生成场景脚本，每个元素在一个脉冲中执行
+     */
+    private interface ScriptFactory {
+        List<Runnable> create(Game game, int disks);
+    }
+
+    /**
+     * 运行一个场景：新建窗口启动游戏，每个脉冲执行一步脚本，结束后关闭窗口
+     */
+    private static PulseRecorder run(String name, int disks, ScriptFactory factory) throws InterruptedException {
+        PulseRecorder recorder = new PulseRecorder(name);
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                start(recorder, disks, factory, done);
+            } catch (RuntimeException | Error e) {// 启动失败时不用等到超时
+                e.printStackTrace();
+                recorder.fail("failed to start: " + e);
+                done.countDown();
+            }
+        });
+        if (!done.await(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            recorder.fail("timed out after " + SCENARIO_TIMEOUT_SECONDS + " s");
+        }
+        return recorder;
+    }
+
+    private static void start(PulseRecorder recorder, int disks, ScriptFactory factory, CountDownLatch done) {
+        Stage stage = new Stage();
+        new GameMain().start(stage);
+        Game game = new Game(stage.getScene());
+        new Scenario(recorder, factory.create(game, disks), stage, game, disks, done).begin();
+    }
+
+    /**
+     * 逐个脉冲执行脚本并计时。一个脉冲内依次是：动画阶段（这里执行一步脚本）、布局之前的监听（键盘队列执行移动、
+     * 游戏发布局面，最后是这里的监听，计时CSS和布局）、布局之后的监听（计算移动动画的轨迹，最后是这里的监听，记录整个脉冲）。
+     * 游戏在脉冲中自己做的事情算在脚本耗时里，脉冲总耗时从动画阶段开始算到布局之后的监听结束，只不包括渲染。
+     */
+    private static class Scenario extends AnimationTimer {
+        private final PulseRecorder recorder;
+        private final List<Runnable> script;
+        private final Stage stage;
+        private final Scene scene;
+        private final Parent root;
+        private final Game game;
+        private final int disks;
+        private final CountDownLatch done;
+        private final Runnable preLayoutListener = this::measureLayout;
+        private final Runnable postLayoutListener = this::endPulse;
+
+        private int step;
+        private boolean measuring;
+        private boolean finished;
+        private long actionStart;
+        private long cssStart;
+        private long layoutStart;
+        private long layoutEnd;
+
+        Scenario(PulseRecorder recorder, List<Runnable> script, Stage stage, Game game, int disks, CountDownLatch done) {
+            this.recorder = recorder;
+            this.script = script;
+            this.stage = stage;
+            this.scene = stage.getScene();
+            this.root = scene.getRoot();
+            this.game = game;
+            this.disks = disks;
+            this.done = done;
+        }
+
+        /**
+         * 监听要在游戏自己的监听之后加入，这样才能排在它们后面执行
+         */
+        void begin() {
+            scene.addPreLayoutPulseListener(preLayoutListener);
+            scene.addPostLayoutPulseListener(postLayoutListener);
+            start();
+        }
+
+        @Override
+        public void handle(long now) {
+            if (finished) {
+                return;
+            }
+            if (step == 0) {
+                recorder.begin();
+            }
+            actionStart = System.nanoTime();
+            try {
+                if (step < script.size()) {
+                    script.get(step).run();
+                }
+            } catch (RuntimeException | Error e) {// 出错时结束场景，不用等到超时
+                fail("step " + step + " failed", e);
+                return;
+            }
+            step++;
+            measuring = true;
+        }
+
+        /**
+         * 脚本和游戏的布局前监听都执行完了，分别计时CSS和布局，这样脉冲自己的CSS和布局阶段就没有需要处理的了
+         */
+        private void measureLayout() {
+            if (!measuring) {
+                return;
+            }
+            try {
+                cssStart = System.nanoTime();
+                root.applyCss();
+                layoutStart = System.nanoTime();
+                root.layout();
+                layoutEnd = System.nanoTime();
+            } catch (RuntimeException | Error e) {
+                fail("layout after step " + (step - 1) + " failed", e);
+            }
+        }
+
+        private void endPulse() {
+            if (!measuring) {
+                return;
+            }
+            measuring = false;
+            long pulseEnd = System.nanoTime();
+            recorder.record(cssStart - actionStart, layoutStart - cssStart, layoutEnd - layoutStart, pulseEnd - actionStart);
+            if (step > script.size()) {// 最后一步之后再多跑一个脉冲，让游戏处理完最后一步
+                finish();
+            }
+        }
+
+        private void fail(String message, Throwable e) {
+            e.printStackTrace();
+            recorder.fail(message + ": " + e);
+            finish();
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            measuring = false;
+            stop();
+            scene.removePreLayoutPulseListener(preLayoutListener);
+            scene.removePostLayoutPulseListener(postLayoutListener);
+            recorder.end(game.isFinished(disks, recorder.getName()));
+            stage.close();
+            done.countDown();
+        }
+    }
+
+    /**
+     * 按最优解逐步拖动方块，每个脉冲一步
+     */
+    private static List<Runnable> dragSolution(Game game, int disks) {
+        List<Runnable> script = new ArrayList<>();
+        script.add(() -> game.slider.setValue(disks));
+        script.add(game.button::fire);
+        new HanoiSolver(disks, 3).solve((from, to) -> script.add(() -> game.drag(from, to)));
+        return script;
+    }
+
+    /**
+     * 按最优解键盘走子，每个脉冲输入两步，覆盖同一脉冲内多步合并执行的情况
+     */
+    private static List<Runnable> keyboardSolution(Game game, int disks) {
+        List<Runnable> script = new ArrayList<>();
+        script.add(() -> game.slider.setValue(disks));
+        script.add(game.button::fire);
+        List<int[]> moves = new ArrayList<>();
+        new HanoiSolver(disks, 3).solve((from, to) -> moves.add(new int[]{from, to}));
+        for (int i = 0; i < moves.size(); i += 2) {
+            List<int[]> batch = moves.subList(i, Math.min(i + 2, moves.size()));
+            script.add(() -> batch.forEach(move -> {
+                game.key(move[0]);
+                game.key(move[1]);
+            }));
+        }
+        return script;
+    }
+
+    /**
+     * 来回拖动滑块，覆盖方块的复用
+     */
+    private static List<Runnable> sliderSweep(Game game, int disks) {
+        List<Runnable> script = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            for (int n = 3; n <= disks; n++) {
+                int value = n;
+                script.add(() -> game.slider.setValue(value));
+            }
+            for (int n = disks - 1; n >= 3; n--) {
+                int value = n;
+                script.add(() -> game.slider.setValue(value));
+            }
+        }
+        script.add(() -> game.slider.setValue(disks));
+        return script;
+    }
+
+    /**
+     * 从场景中找到游戏的控件，并模拟用户操作
+     */
+    private static class Game {
+        private final Scene scene;
+        private final List<Stack> stacks = new ArrayList<>();
+        private Button button;
+        private Slider slider;
+
+        Game(Scene scene) {
+            this.scene = scene;
+            collect(scene.getRoot());
+        }
+
+        private void collect(Node node) {
+            if (node instanceof Stack) {
+                stacks.add((Stack) node);
+                return;
+            }
+            if (node instanceof Button && button == null) {
+                button = (Button) node;
+            } else if (node instanceof Slider && slider == null) {
+                slider = (Slider) node;
+            }
+            if (node instanceof Parent) {
+                ((Parent) node).getChildrenUnmodifiable().forEach(this::collect);
+            }
+        }
+
+        void drag(int from, int to) {
+            Block block = stacks.get(from).getTopBlock();
+            Point2D start = block.localToScene(block.getWidth() / 2, block.getHeight() / 2);
+            Stack target = stacks.get(to);
+            Point2D end = target.localToScene(target.getWidth() / 2, target.getHeight() / 2);
+            Point2D middle = start.midpoint(end);
+            Event.fireEvent(block, mouseEvent(MouseEvent.MOUSE_PRESSED, start));
+            Event.fireEvent(block, mouseEvent(MouseEvent.MOUSE_DRAGGED, middle));
+            Event.fireEvent(block, mouseEvent(MouseEvent.MOUSE_DRAGGED, end));
+            Event.fireEvent(block, mouseEvent(MouseEvent.MOUSE_RELEASED, end));
+        }
+
+        private MouseEvent mouseEvent(EventType<MouseEvent> type, Point2D point) {
+            boolean down = type != MouseEvent.MOUSE_RELEASED;
+            return new MouseEvent(type, point.getX(), point.getY(), point.getX(), point.getY(), MouseButton.PRIMARY,
+                    1, false, false, false, false, down, false, false, false, false, false, null);
+        }
+
+        void key(int stack) {
+            KeyCode code = KeyCode.values()[KeyCode.DIGIT1.ordinal() + stack];
+            Event.fireEvent(scene, new KeyEvent(KeyEvent.KEY_PRESSED, "", "", code, false, false, false, false));
+        }
+
+        boolean isFinished(int disks, String scenario) {
+            if (scenario.startsWith("slider")) {
+                return stacks.get(0).getBlockSize() == disks;
+            }
+            return stacks.get(stacks.size() - 1).getBlockSize() == disks;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardTest {
+
+    @Test
+    void moveTowerKeepsOrderAndDoesNotCountMoves() {
+        Board board = new Board(5, 3);
+        board.moveTower(3, 0, 2);
+        assertEquals(2, board.height(0));
+        assertEquals(3, board.height(2));
+        assertEquals(3, board.diskAt(2, 0));
+        assertEquals(1, board.top(2));
+        assertEquals(0, board.getMoveCount());
+
+        board.moveTower(2, 2, 1);// 移走上面两个，剩下3号方块
+        assertEquals(3, board.top(2));
+        assertEquals(1, board.top(1));
+    }
+
+    @Test
+    void moveTowerRejectsIllegalMoves() {
+        Board board = new Board(4, 3);
+        board.move(0, 1);// 1号方块到B
+        assertThrows(IllegalStateException.class, () -> board.moveTower(2, 0, 1));// 3号方块不能压在1号上
+        assertThrows(IllegalStateException.class, () -> board.moveTower(4, 0, 2));// A上只有3个方块
+        assertThrows(IllegalStateException.class, () -> board.moveTower(1, 0, 0));
+    }
+
+    @Test
+    void samePositionIgnoresMoveCount() {
+        Board a = new Board(3, 3);
+        Board b = new Board(3, 3);
+        a.move(0, 2);
+        b.moveTower(1, 0, 2);
+        assertTrue(a.samePosition(b));
+        b.move(2, 1);
+        assertFalse(a.samePosition(b));
+        assertFalse(a.samePosition(new Board(3, 4)));
+    }
+}
@@ -0,0 +1,85 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HanoiSolverTest {
+
+    private static final int[] SEGMENT_SIZES = {1, 2, 3, 5, 7, 64};
+
+    @Test
+    void optimalMovesMatchesKnownCounts() {
+        assertEquals(7, new HanoiSolver(3, 3).optimalMoves());
+        assertEquals(1023, new HanoiSolver(10, 3).optimalMoves());
+        assertEquals(129, new HanoiSolver(15, 4).optimalMoves());
+        assertEquals(0, new HanoiSolver(0, 5).optimalMoves());
+    }
+
+    @Test
+    void fullSolutionSolvesBoardInOptimalMoves() {
+        for (int pegs = 3; pegs <= 6; pegs++) {
+            for (int disks = 0; disks <= 10; disks++) {
+                HanoiSolver solver = new HanoiSolver(disks, pegs);
+                Board board = new Board(disks, pegs);
+                solver.solve(board::move);
+                assertTrue(board.isSolved(), disks + " disks, " + pegs + " pegs");
+                assertEquals(solver.optimalMoves(), board.getMoveCount());
+            }
+        }
+    }
+
+    @Test
+    void segmentsReproduceFullSolution() {
+        for (int pegs = 3; pegs <= 6; pegs++) {
+            for (int disks = 0; disks <= 9; disks++) {
+                HanoiSolver solver = new HanoiSolver(disks, pegs);
+                List<Integer> full = new ArrayList<>();
+                solver.solve((from, to) -> full.add(from << 8 | to));
+                long total = solver.optimalMoves();
+                for (int size : SEGMENT_SIZES) {
+                    List<Integer> joined = new ArrayList<>();
+                    for (long first = 0; first < total; first += size) {
+                        long last = Math.min(total, first + size);
+                        Board board = new Board(disks, pegs);
+                        solver.solve(first, last, board, (from, to) -> {
+                            board.move(from, to);// 区间之前的局面必须摆对，否则这里会抛出异常
+                            joined.add(from << 8 | to);
+                        });
+                        Board expected = new Board(disks, pegs);
+                        solver.solve(last, last, expected, null);
+                        assertTrue(board.samePosition(expected), "position after move " + last);
+                    }
+                    assertEquals(full, joined, disks + " disks, " + pegs + " pegs, segment " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void solveToSamePositionPlacesBoardWithoutMoves() {
+        HanoiSolver solver = new HanoiSolver(4, 3);
+        Board expected = new Board(4, 3);
+        List<int[]> moves = new ArrayList<>();
+        solver.solve((from, to) -> moves.add(new int[]{from, to}));
+        for (int i = 0; i < 5; i++) {
+            expected.move(moves.get(i)[0], moves.get(i)[1]);
+        }
+        Board board = new Board(4, 3);
+        solver.solve(5, 5, board, null);
+        assertTrue(board.samePosition(expected));
+        assertEquals(0, board.getMoveCount());
+    }
+
+    @Test
+    void rejectsOutOfRangeArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new HanoiSolver(HanoiSolver.MAX_DISKS + 1, 3));
+        assertThrows(IllegalArgumentException.class, () -> new HanoiSolver(3, HanoiSolver.MIN_PEGS - 1));
+        assertThrows(IllegalArgumentException.class, () -> new HanoiSolver(3, HanoiSolver.MAX_PEGS + 1));
+    }
+}
@@ -0,0 +1,140 @@
+package org.nbpeak.game.towerHanoi.solver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablebaseTest {
+
+    /**
+     * {pegs, 最多方块数}
+     */
+    private static final int[][] CASES = {{3, 6}, {4, 6}, {5, 5}, {6, 4}};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void nibblesMatchBreadthFirstDistances() throws IOException {
+        for (int[] c : CASES) {
+            int pegs = c[0];
+            for (int disks = 0; disks <= c[1]; disks++) {
+                Path file = dir.resolve(disks + "-" + pegs + ".tb");
+                int maxDistance = new TablebaseGenerator(disks, pegs).generate(file);
+                int[] distances = distances(disks, pegs);
+                assertEquals(Arrays.stream(distances).max().getAsInt(), maxDistance, disks + " disks, " + pegs + " pegs");
+
+                byte[] bytes = Files.readAllBytes(file);
+                Tablebase tablebase = Tablebase.open(file);
+                assertEquals(distances.length, tablebase.getStates());
+                for (int state = 0; state < distances.length; state++) {
+                    int b = bytes[Tablebase.HEADER_SIZE + state / 2];
+                    int nibble = state % 2 == 0 ? b & 0xF : (b >>> 4) & 0xF;// 偶数编号在低4位
+                    int expected = distances[state] % Tablebase.MODULUS;
+                    assertEquals(expected, nibble, "state " + state + ", " + disks + " disks, " + pegs + " pegs");
+                    assertEquals(expected, tablebase.value(state));
+                }
+            }
+        }
+    }
+
+    @Test
+    void bestMoveFollowsFrameStewartDistances() throws IOException {
+        for (int[] c : CASES) {
+            int pegs = c[0];
+            for (int disks = 0; disks <= c[1]; disks++) {
+                Path file = dir.resolve(disks + "-" + pegs + ".tb");
+                new TablebaseGenerator(disks, pegs).generate(file);
+                Tablebase tablebase = Tablebase.open(file);
+                int[] distances = distances(disks, pegs);
+                long optimal = new HanoiSolver(disks, pegs).optimalMoves();
+
+                Board board = new Board(disks, pegs);
+                assertEquals(optimal, tablebase.movesRemaining(board), disks + " disks, " + pegs + " pegs");
+                assertEquals(optimal, distances[(int) tablebase.encode(board)]);
+                for (int move; (move = tablebase.bestMove(board)) != -1; ) {
+                    int before = distances[(int) tablebase.encode(board)];
+                    assertTrue(board.canMove(Tablebase.moveFrom(move), Tablebase.moveTo(move)));
+                    board.move(Tablebase.moveFrom(move), Tablebase.moveTo(move));
+                    assertEquals(before - 1, distances[(int) tablebase.encode(board)]);
+                }
+                assertTrue(board.isSolved());
+                assertEquals(optimal, board.getMoveCount());
+
+                for (int state = 0; state < distances.length; state++) {// 任意局面的最优一步都让距离减1
+                    int move = tablebase.bestMove(state);
+                    if (distances[state] == 0) {
+                        assertEquals(-1, move);
+                        continue;
+                    }
+                    int disk = smallestOn(state, Tablebase.moveFrom(move), disks, pegs);
+                    int next = state + (Tablebase.moveTo(move) - Tablebase.moveFrom(move)) * (int) Math.pow(pegs, disk);
+                    assertEquals(distances[state] - 1, distances[next], "state " + state);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsImpossibleSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new TablebaseGenerator(3, 11));
+        assertThrows(IllegalArgumentException.class, () -> new TablebaseGenerator(3, 2));
+        assertThrows(IllegalArgumentException.class, () -> new TablebaseGenerator(64, 3));
+        assertThrows(IllegalArgumentException.class, () -> new TablebaseGenerator(30, 4));
+        assertThrows(IllegalArgumentException.class, () -> new TablebaseGenerator(40, 4));// 局面数超出long
+    }
+
+    /**
+     * 不依赖残局库代码，从目标局面广度优先搜索每个局面到目标的步数。第i小的方块所在柱子是pegs进制的第i位
+     */
+    private static int[] distances(int disks, int pegs) {
+        int states = (int) Math.pow(pegs, disks);
+        int[] distances = new int[states];
+        Arrays.fill(distances, -1);
+        int goal = states - 1;
+        distances[goal] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(goal);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int from = 0; from < pegs; from++) {
+                int disk = smallestOn(state, from, disks, pegs);
+                if (disk == disks) {
+                    continue;
+                }
+                for (int to = 0; to < pegs; to++) {
+                    if (to == from || smallestOn(state, to, disks, pegs) < disk) {
+                        continue;
+                    }
+                    int next = state + (to - from) * (int) Math.pow(pegs, disk);
+                    if (distances[next] < 0) {
+                        distances[next] = distances[state] + 1;
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * 柱子上最小的方块，空柱子返回disks
+     */
+    private static int smallestOn(long state, int peg, int disks, int pegs) {
+        for (int i = 0; i < disks; i++, state /= pegs) {
+            if (state % pegs == peg) {
+                return i;
+            }
+        }
+        return disks;
+    }
+}
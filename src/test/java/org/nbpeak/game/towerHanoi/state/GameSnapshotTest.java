@@ -0,0 +1,57 @@
+package org.nbpeak.game.towerHanoi.state;
+
+import org.junit.jupiter.api.Test;
+import org.nbpeak.game.towerHanoi.solver.Board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSnapshotTest {
+
+    @Test
+    void withMoveMatchesBoardMove() {
+        for (int pegs = 3; pegs <= 5; pegs++) {
+            Board board = new Board(6, pegs);
+            GameSnapshot snapshot = GameSnapshot.of(board, 0, 0, 0, 7);
+            int steps = 0;
+            for (int from = 0; from < pegs; from++) {// 按固定顺序走一些合法的步
+                for (int to = 0; to < pegs; to++) {
+                    if (board.canMove(from, to)) {
+                        board.move(from, to);
+                        snapshot = snapshot.withMove(from, to, ++steps, steps * 100L);
+                    }
+                }
+            }
+            assertEquals(steps, snapshot.getSteps());
+            assertEquals(steps * 100L, snapshot.getElapsedMillis());
+            assertEquals(7 + steps, snapshot.getVersion());
+            assertEquals(GameSnapshot.of(board, 0, 0, 0, 0).getPositions(), snapshot.getPositions());
+            assertTrue(snapshot.toBoard(null).samePosition(board));
+        }
+    }
+
+    @Test
+    void withMoveFromEmptyPegThrows() {
+        GameSnapshot snapshot = GameSnapshot.of(new Board(3, 3), 0, 0, 0, 0);
+        assertThrows(IllegalStateException.class, () -> snapshot.withMove(1, 2, 1, 0));
+        assertThrows(IllegalStateException.class, () -> GameSnapshot.EMPTY.withMove(0, 1, 1, 0));
+    }
+
+    @Test
+    void withMoveRejectsIllegalMoves() {
+        Board board = new Board(3, 3);
+        board.move(0, 2);// 1号方块到C
+        GameSnapshot snapshot = GameSnapshot.of(board, 1, 0, 0, 0);
+        assertThrows(IllegalStateException.class, () -> snapshot.withMove(0, 2, 2, 0));// 2号不能压在1号上
+        assertThrows(IllegalStateException.class, () -> snapshot.withMove(0, 0, 2, 0));
+        assertThrows(IllegalStateException.class, () -> snapshot.withMove(0, 3, 2, 0));
+        assertThrows(IllegalStateException.class, () -> snapshot.withMove(-1, 1, 2, 0));
+
+        GameSnapshot moved = snapshot.withMove(0, 1, 2, 0);// 合法的一步不受影响
+        assertEquals(2, moved.top(1));
+        assertEquals(3, moved.top(0));
+        assertEquals(1, snapshot.top(2));// 原快照不变
+        assertEquals(2, snapshot.top(0));
+    }
+}